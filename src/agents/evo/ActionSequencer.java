@@ -4,6 +4,7 @@ import agents.dummy.DoNothingAgent;
 import evodef.PluginEvaluator;
 import ggi.core.AbstractGameState;
 import ggi.core.SimplePlayerInterface;
+import planetwar.GameState;
 import plot.NullPlayoutPlotter;
 import plot.PlayoutPlotterInterface;
 
@@ -36,6 +37,8 @@ public class ActionSequencer implements PluginEvaluator {
 
     public ActionSequencer setGameState(AbstractGameState gameState) {
         // actually makes a copy of it to avoid modifying the original
+        if (initialState != null) initialState.release();
+        release();
         this.initialState = gameState.copy();
         return this;
     }
@@ -71,8 +74,33 @@ public class ActionSequencer implements PluginEvaluator {
 
     static boolean exitLoopWhenGameOver = false;
 
+    // what a DoNothingAgent plays, as an opponent sequence for GameState.rollout
+    static int[] doNothingAgentMoves = {0};
+
+    // planet wars rollouts against the default opponent are played in this
+    // one state, reused from rollout to rollout, rather than in a new copy
+    GameState scratch;
+
+    private boolean rolloutInPlace() {
+        return initialState instanceof GameState && opponent instanceof DoNothingAgent
+                && playoutPlotter instanceof NullPlayoutPlotter && !exitLoopWhenGameOver;
+    }
+
+    // the last rollout's state is kept for getTerminalState until the next one
+    private void release() {
+        if (terminalState != null) terminalState.release();
+        terminalState = null;
+    }
+
     public ActionSequencer actVersusAgent(int[] seq, int playerId) {
         // careful, this may not be copiing the game state ...
+        release();
+        if (rolloutInPlace()) {
+            if (scratch == null) scratch = new GameState();
+            ((GameState) initialState).rollout(scratch, seq, doNothingAgentMoves, playerId, 1);
+            terminalState = scratch;
+            return this;
+        }
         terminalState = initialState.copy();
         playoutPlotter.startPlayout(terminalState.getScore());
 
@@ -13,8 +13,10 @@ import plot.NullPlayoutPlotter;
 import plot.PlayoutPlotter;
 import plot.PlayoutPlotterInterface;
 import spinbattle.core.SpinGameState;
+import utilities.TimeBudget;
 
 import java.awt.*;
+import java.util.Random;
 
 /**
  *  This is a simple evolutionary planning agent
@@ -39,6 +41,9 @@ public class EvoAgent implements SimplePlayerInterface {
     public int[] solution;
     public int nEvals;
 
+    // if set, each decision runs until the budget expires, with nEvals ignored
+    TimeBudget timeBudget;
+
     PlayoutPlotterInterface playoutPlotter = new NullPlayoutPlotter();
 
     public SimplePlayerInterface reset() {
@@ -53,11 +58,22 @@ public class EvoAgent implements SimplePlayerInterface {
     public EvoAgent setEvoAlg(EvoAlg evoAlg, int nEvals) {
         this.evoAlg = evoAlg;
         this.nEvals = nEvals;
+        if (timeBudget != null) evoAlg.setTimeBudget(timeBudget);
         // set up the search space and other helpers at the same time
         actionSequencer = new ActionSequencer();
         return this;
     }
 
+    /**
+     * Use millis of wall clock time per decision instead of a fixed number
+     * of evaluations; 0 or less goes back to counting evaluations.
+     */
+    public EvoAgent setTimeBudget(long millis) {
+        timeBudget = millis > 0 ? new TimeBudget(millis) : null;
+        evoAlg.setTimeBudget(timeBudget);
+        return this;
+    }
+
     public EvoAgent setUseShiftBuffer(boolean useShiftBuffer) {
         this.useShiftBuffer = useShiftBuffer;
         return this;
@@ -89,6 +105,14 @@ public class EvoAgent implements SimplePlayerInterface {
         return this;
     }
 
+    // for the action appended to the shifted sequence; null draws on a shared Random
+    Random random;
+
+    public EvoAgent setRandom(Random random) {
+        this.random = random;
+        return this;
+    }
+
     public int[] getActions(AbstractGameState gameState, int playerId) {
         searchSpace = new RegularSearchSpace(sequenceLength, gameState.nActions());
         simpleGameAdapter = new SimpleGameAdapter().setEvaluator(actionSequencer).setSearchSpace(searchSpace);
@@ -96,11 +120,17 @@ public class EvoAgent implements SimplePlayerInterface {
         actionSequencer.playoutPlotter = playoutPlotter;
         playoutPlotter.reset();
         if (solution != null) {
-            solution = SearchSpaceUtil.shiftLeftAndRandomAppend(solution, searchSpace);
+            solution = random == null ? SearchSpaceUtil.shiftLeftAndRandomAppend(solution, searchSpace)
+                    : SearchSpaceUtil.shiftLeftAndRandomAppend(solution, searchSpace, random);
             evoAlg.setInitialSeed(solution);
         }
         simpleGameAdapter.reset();
-        solution = evoAlg.runTrial(simpleGameAdapter, nEvals);
+        if (timeBudget != null) {
+            timeBudget.start();
+            solution = evoAlg.runTrial(simpleGameAdapter, Integer.MAX_VALUE);
+        } else {
+            solution = evoAlg.runTrial(simpleGameAdapter, nEvals);
+        }
 
         playoutPlotter.plotPlayout();
         // System.out.println(Arrays.toString(solution) + "\t " + game.evaluate(solution));
@@ -27,6 +27,31 @@ public class Asteroid extends GameObject {
     public Asteroid(Vector2d s, Vector2d v, int index, double r) {
         super(s, v);
         // this.gameState = gameState;
+        reset(index, r);
+    }
+
+    public Asteroid(Vector2d s, Vector2d v) {
+        super(s, v);
+    }
+
+    // blank asteroid for the object pool
+    Asteroid() {
+        super(new Vector2d(), new Vector2d());
+    }
+
+    /**
+     * Re-initialises a pooled asteroid as if it had just been constructed.
+     */
+    Asteroid init(Vector2d s, Vector2d v, int index, double r) {
+        this.s.set(s);
+        this.v.set(v);
+        dead = false;
+        isTarget = false;
+        reset(index, r);
+        return this;
+    }
+
+    private void reset(int index, double r) {
         rotRate = (rand.nextDouble() - 0.5) * Math.PI / 20;
         rot = 0;
         this.index = index;
@@ -34,21 +59,23 @@ public class Asteroid extends GameObject {
         setPolygon();
     }
 
-    public Asteroid(Vector2d s, Vector2d v) {
-        super(s, v);
-    }
-
     public Asteroid copy() {
+        return copyInto(new Asteroid(s, v));
+    }
 
-        Asteroid asteroid = new Asteroid(s, v);
+    Asteroid copyInto(Asteroid asteroid) {
+        asteroid.s.set(s);
+        asteroid.v.set(v);
+        asteroid.dead = false;
+        asteroid.isTarget = false;
         asteroid.rotRate = rotRate;
         asteroid.rot = rot;
         asteroid.index = index;
         asteroid.r = r;
+        // the polygon is never modified in place, so it can be shared
         asteroid.px = px;
         asteroid.py = py;
         return asteroid;
-
     }
 
 
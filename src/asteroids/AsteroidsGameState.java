@@ -3,6 +3,7 @@ package asteroids;
 import evogame.GameParameters;
 import math.Vector2d;
 import ggi.core.AbstractGameState;
+import utilities.Metrics;
 
 import java.awt.*;
 
@@ -10,6 +11,8 @@ import static asteroids.Constants.*;
 
 public class AsteroidsGameState implements AbstractGameState {
 
+    static final Metrics.Counter copies = Metrics.counter("Asteroids.copy");
+
     public int initialLives = 3;
     public int initialLevel = 5;
     public ForwardModel forwardModel;
@@ -52,6 +55,7 @@ public class AsteroidsGameState implements AbstractGameState {
     }
 
     public AsteroidsGameState copy() {
+        copies.inc();
         AsteroidsGameState gs = new AsteroidsGameState();
         gs.state = state;
         gs.nextState = nextState;
@@ -67,6 +71,14 @@ public class AsteroidsGameState implements AbstractGameState {
         return gs;
     }
 
+    /**
+     * Returns this state's objects to the pool; the state must not be used afterwards.
+     */
+    @Override
+    public void release() {
+        forwardModel.release();
+    }
+
     @Override
     public AbstractGameState next(int[] actions) {
         update(actionAdapter.getAction(actions[0]));
@@ -0,0 +1,114 @@
+package asteroids;
+
+import java.util.Arrays;
+
+import static asteroids.Constants.*;
+
+/**
+ * Broad-phase collision grid for the asteroids forward model.
+ *
+ * Each asteroid is registered in every cell its bounding box touches,
+ * with cells taken modulo the grid size so objects straddling an edge
+ * of the wrapped world are found from both sides.  A query returns the
+ * lowest list index of an asteroid that really overlaps the probe, which
+ * matches the order the old all-pairs loop would have found it in.
+ *
+ * Entries are stored as singly linked lists in flat int arrays, so
+ * clearing and rebuilding the grid every tick does not allocate.
+ */
+class CollisionGrid {
+
+    static int cellSize = 64;
+
+    int nCols = (width + cellSize - 1) / cellSize;
+    int nRows = (height + cellSize - 1) / cellSize;
+
+    // head entry for each cell, -1 when empty
+    int[] cellHead = new int[nCols * nRows];
+
+    // per-entry asteroid index and next entry in the same cell
+    int[] entryIndex = new int[256];
+    int[] entryNext = new int[256];
+    int nEntries;
+
+    // stamps used to avoid testing the same asteroid twice per query
+    int[] stamp = new int[64];
+    int queryId;
+
+    CollisionGrid() {
+        clear();
+    }
+
+    void clear() {
+        Arrays.fill(cellHead, -1);
+        nEntries = 0;
+    }
+
+    void add(int index, GameObject ob) {
+        if (index >= stamp.length) {
+            stamp = Arrays.copyOf(stamp, Math.max(index + 1, stamp.length * 2));
+        }
+        double r = ob.r();
+        int x0 = cell(ob.s.x - r), x1 = cell(ob.s.x + r);
+        int y0 = cell(ob.s.y - r), y1 = cell(ob.s.y + r);
+        // an object bigger than the world covers every cell once only
+        int xSpan = Math.min(x1 - x0, nCols - 1);
+        int ySpan = Math.min(y1 - y0, nRows - 1);
+        for (int i = 0; i <= xSpan; i++) {
+            int cx = Math.floorMod(x0 + i, nCols);
+            for (int j = 0; j <= ySpan; j++) {
+                int cy = Math.floorMod(y0 + j, nRows);
+                link(cx + cy * nCols, index);
+            }
+        }
+    }
+
+    private void link(int c, int index) {
+        if (nEntries == entryIndex.length) {
+            entryIndex = Arrays.copyOf(entryIndex, nEntries * 2);
+            entryNext = Arrays.copyOf(entryNext, nEntries * 2);
+        }
+        entryIndex[nEntries] = index;
+        entryNext[nEntries] = cellHead[c];
+        cellHead[c] = nEntries++;
+    }
+
+    private int cell(double v) {
+        return (int) Math.floor(v / cellSize);
+    }
+
+    /**
+     * Finds the first live asteroid (lowest index) that overlaps the probe
+     * according to the forward model's narrow-phase test, or -1 if none.
+     */
+    int firstHit(ForwardModel model, GameObject probe) {
+        queryId++;
+        if (queryId == 0) {
+            Arrays.fill(stamp, 0);
+            queryId = 1;
+        }
+        double r = probe.r();
+        int x0 = cell(probe.s.x - r), x1 = cell(probe.s.x + r);
+        int y0 = cell(probe.s.y - r), y1 = cell(probe.s.y + r);
+        int xSpan = Math.min(x1 - x0, nCols - 1);
+        int ySpan = Math.min(y1 - y0, nRows - 1);
+        int best = -1;
+        for (int i = 0; i <= xSpan; i++) {
+            int cx = Math.floorMod(x0 + i, nCols);
+            for (int j = 0; j <= ySpan; j++) {
+                int cy = Math.floorMod(y0 + j, nRows);
+                for (int e = cellHead[cx + cy * nCols]; e >= 0; e = entryNext[e]) {
+                    int index = entryIndex[e];
+                    if (stamp[index] == queryId) continue;
+                    stamp[index] = queryId;
+                    if (best >= 0 && index > best) continue;
+                    Asteroid asteroid = model.asteroids.get(index);
+                    if (!asteroid.dead() && model.overlap(probe, asteroid)) {
+                        best = index;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+}
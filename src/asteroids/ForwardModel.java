@@ -1,9 +1,11 @@
 package asteroids;
 
 import math.Vector2d;
+import utilities.Metrics;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 import static asteroids.Constants.*;
 import static asteroids.Constants.lifeThreshold;
@@ -16,7 +18,9 @@ public class ForwardModel {
     // limit on number of active missiles
     static int liveMissileLimit = 5;
 
-    public static int totalTicks = 0;
+    // an adder, as games may be played on many threads
+    public static final LongAdder totalTicks = new LongAdder();
+    static final Metrics.Counter ticks = Metrics.counter("Asteroids.tick");
     int nTicks = 0;
 
     AsteroidsGameState gameState;
@@ -28,6 +32,9 @@ public class ForwardModel {
     int nLives;
     int level;
 
+    // broad-phase grid, only set while missiles are being checked
+    CollisionGrid grid;
+
     public ForwardModel() {
         // this.gameState = gameState;
         asteroids = new ArrayList<>();
@@ -53,15 +60,30 @@ public class ForwardModel {
         fm.nLives = this.nLives;
         fm.level = this.level;
         fm.gameState = gameState;
+        // draw the copies from the per-thread pool rather than allocating
+        ObjectPool pool = ObjectPool.get();
+        fm.asteroids.ensureCapacity(asteroids.size());
         for (Asteroid asteroid : asteroids) {
-            fm.asteroids.add(asteroid.copy());
+            fm.asteroids.add(asteroid.copyInto(pool.asteroid()));
         }
         for (Missile missile : missiles) {
-            fm.missiles.add((missile.copy()));
+            fm.missiles.add(missile.copyInto(pool.missile()));
         }
         return fm;
     }
 
+    /**
+     * Hands all asteroids and missiles back to the pool.  Only call this
+     * on a model that is about to be discarded, e.g. the end of a rollout.
+     */
+    public void release() {
+        ObjectPool pool = ObjectPool.get();
+        for (Asteroid asteroid : asteroids) pool.release(asteroid);
+        for (Missile missile : missiles) pool.release(missile);
+        asteroids.clear();
+        missiles.clear();
+    }
+
     public ForwardModel next(Action action) {
         update(action);
         return this;
@@ -72,7 +94,8 @@ public class ForwardModel {
         updateMissiles();
         updateAsteroids();
         nTicks++;
-        totalTicks++;
+        totalTicks.increment();
+        ticks.inc();
 //        System.out.println(nTicks + "\t " + totalTicks);
 
     }
@@ -115,12 +138,22 @@ public class ForwardModel {
                 wrap(asteroid);
             }
         }
-        // now keep only the live ones
-        ArrayList<Asteroid> tmp = new ArrayList<>();
-        for (Asteroid asteroid : asteroids)
-            if (!asteroid.dead()) tmp.add(asteroid);
-        asteroids = tmp;
+        // now keep only the live ones, compacting in place
+        ObjectPool pool = ObjectPool.get();
+        int n = 0;
+        for (int i=0; i<asteroids.size(); i++) {
+            Asteroid asteroid = asteroids.get(i);
+            if (asteroid.dead()) {
+                pool.release(asteroid);
+            } else {
+                asteroids.set(n++, asteroid);
+            }
+        }
+        truncate(asteroids, n);
+    }
 
+    private static void truncate(ArrayList<?> list, int n) {
+        for (int i=list.size()-1; i>=n; i--) list.remove(i);
     }
 
     public int nAsteroids() {
@@ -135,34 +168,46 @@ public class ForwardModel {
     }
 
     public void updateMissiles() {
+        ObjectPool pool = ObjectPool.get();
+        // broad phase: bucket the live asteroids by grid cell, so each
+        // missile only tests the rocks near it
+        grid = pool.grid;
+        grid.clear();
+        for (int i=0; i<asteroids.size(); i++) {
+            Asteroid asteroid = asteroids.get(i);
+            if (!asteroid.dead()) grid.add(i, asteroid);
+        }
         for (Missile missile : missiles) {
             if (!missile.dead()) {
                 missile.update();
                 wrap(missile);
-                // check each asteroid
-                for (int i=0; i<asteroids.size(); i++) {
-
-                    Asteroid asteroid = asteroids.get(i);
-
-                    if (!missile.dead() && !asteroid.dead() && overlap(missile, asteroid)) {
-                        missile.hit();
-                        asteroidDeath(asteroid);
-                    }
+                // the grid returns the first asteroid hit in list order
+                int i = grid.firstHit(this, missile);
+                if (i >= 0) {
+                    missile.hit();
+                    asteroidDeath(asteroids.get(i));
                 }
             }
         }
-        // now keep only the live ones
-        ArrayList<Missile> tmp = new ArrayList<>();
-        for (Missile missile : missiles)
-            if (!missile.dead()) tmp.add(missile);
-        missiles = tmp;
+        grid = null;
+        // now keep only the live ones, compacting in place
+        int n = 0;
+        for (int i=0; i<missiles.size(); i++) {
+            Missile missile = missiles.get(i);
+            if (missile.dead()) {
+                pool.release(missile);
+            } else {
+                missiles.set(n++, missile);
+            }
+        }
+        truncate(missiles, n);
     }
 
     public void deleteMissiles() {
 
     }
 
-    private boolean overlap(GameObject actor, GameObject ob) {
+    boolean overlap(GameObject actor, GameObject ob) {
         if (actor.equals(ob)) {
             return false;
         }
@@ -193,14 +238,17 @@ public class ForwardModel {
         a.dead = true;
         if (a.index < gameState.params.radii.length - 1) {
             // add some new ones at this position
+            ObjectPool pool = ObjectPool.get();
             for (int i=0; i<nSplits; i++) {
-                Vector2d v1 = a.v.copy().add(
-                        rand.nextGaussian(), rand.nextGaussian());
+                double dx = rand.nextGaussian();
+                double dy = rand.nextGaussian();
 
                 double r = gameState.params.radii[a.index+1];
-                Asteroid splitRock = new Asteroid(a.s.copy(), v1,a.index + 1, r);
-                splitRock.dead = false;
+                Asteroid splitRock = pool.asteroid().init(a.s, a.v, a.index + 1, r);
+                splitRock.v.add(dx, dy);
                 asteroids.add(splitRock);
+                // later missiles in this tick may hit the new rocks
+                if (grid != null) grid.add(asteroids.size() - 1, splitRock);
             }
         }
         incScore(asteroidScore[a.index]);
@@ -149,7 +149,7 @@ public class Game {
         if (showPlayouts && controller instanceof EvoAgentAdapter) {
             EvoAgentAdapter adapter = (EvoAgentAdapter) controller;
             EvoAgent evoAgent = (EvoAgent) adapter.agent;
-            view.playouts = evoAgent.evoAlg.getLogger().solutions;
+            view.playouts = evoAgent.evoAlg.getLogger().getSolutions();
         }
     }
 
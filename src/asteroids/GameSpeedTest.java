@@ -36,7 +36,7 @@ public class GameSpeedTest {
         game.run(nTicks);
 
         gameState = gameState.copy();
-        System.out.println(ForwardModel.totalTicks);
+        System.out.println(ForwardModel.totalTicks.sum());
         System.out.println("nTicks:\t " + gameState.nTicks());
         System.out.println("fTicks:\t " + gameState.forwardModel.nTicks);
         System.out.println("t(ms):\t " + t);
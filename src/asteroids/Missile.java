@@ -15,6 +15,11 @@ public class Missile extends GameObject {
         r = rad;
     }
 
+    // blank missile for the object pool
+    Missile() {
+        super(new Vector2d(), new Vector2d());
+    }
+
     @Override
     public void update(AsteroidsGameState gameState) {
         // System.out.println("Updating missile: " + this);
@@ -56,4 +61,18 @@ public class Missile extends GameObject {
         Missile missile = new Missile(s, v, ttl, (int) r);
         return missile;
     }
+
+    Missile init(Vector2d s, Vector2d v, int ttl, int rad) {
+        this.s.set(s);
+        this.v.set(v);
+        this.ttl = ttl;
+        r = rad;
+        dead = false;
+        isTarget = false;
+        return this;
+    }
+
+    Missile copyInto(Missile missile) {
+        return missile.init(s, v, ttl, (int) r);
+    }
 }
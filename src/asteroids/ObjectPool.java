@@ -0,0 +1,50 @@
+package asteroids;
+
+import java.util.ArrayList;
+
+/**
+ * Per-thread free lists of asteroids and missiles.
+ *
+ * Rollout-based agents create and discard forward model copies at a very
+ * high rate, so dead objects and the contents of discarded models are
+ * recycled here rather than left for the garbage collector.  Each thread
+ * has its own pool, so no locking is needed; the pools are bounded so a
+ * burst of releases cannot pin memory indefinitely.
+ *
+ * The pool also owns the thread's collision grid, which is only scratch
+ * space during a single tick.
+ */
+class ObjectPool {
+
+    static int capacity = 4096;
+
+    private static final ThreadLocal<ObjectPool> local =
+            ThreadLocal.withInitial(ObjectPool::new);
+
+    static ObjectPool get() {
+        return local.get();
+    }
+
+    ArrayList<Asteroid> asteroids = new ArrayList<>();
+    ArrayList<Missile> missiles = new ArrayList<>();
+
+    CollisionGrid grid = new CollisionGrid();
+
+    Asteroid asteroid() {
+        int n = asteroids.size();
+        return n == 0 ? new Asteroid() : asteroids.remove(n - 1);
+    }
+
+    Missile missile() {
+        int n = missiles.size();
+        return n == 0 ? new Missile() : missiles.remove(n - 1);
+    }
+
+    void release(Asteroid asteroid) {
+        if (asteroids.size() < capacity) asteroids.add(asteroid);
+    }
+
+    void release(Missile missile) {
+        if (missiles.size() < capacity) missiles.add(missile);
+    }
+}
@@ -35,6 +35,8 @@ public class Ship extends GameObject {
 
     static double gravity = 0.00;
 
+    static final Vector2d zero = new Vector2d();
+
     public Action action;
     public AsteroidsGameState game;
 
@@ -122,7 +124,7 @@ public class Ship extends GameObject {
         if (releaseVelocity > maxRelease) {
             // System.out.println("Missile fired!");
             releaseVelocity = Math.max(releaseVelocity, game.params.missileMinVelocity * 2);
-            Missile m = new Missile(s, new Vector2d(0, 0), game.params.missileTTL, game.params.missileRadius);
+            Missile m = ObjectPool.get().missile().init(s, zero, game.params.missileTTL, game.params.missileRadius);
             releaseVelocity = Math.min(releaseVelocity, maxRelease);
             m.v.add(d, releaseVelocity);
             // make it clear the ship
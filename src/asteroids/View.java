@@ -20,7 +20,8 @@ public class View extends JComponent {
     int scale;
     // static int carSize = 5;
     static Color bg = black;
-    AsteroidsGameState gameState;
+    // replaced wholesale by the game loop each tick, read by the Swing thread
+    volatile AsteroidsGameState gameState;
     // Font font;
 
     Ship ship;
@@ -40,6 +41,7 @@ public class View extends JComponent {
 
     public void paintComponent(Graphics gx) {
         Graphics2D g = (Graphics2D) gx;
+        AsteroidsGameState gameState = this.gameState;
         AffineTransform at = g.getTransform();
         g.translate((1 - viewScale) * width / 2, (1-viewScale)*height / 2);
 
@@ -53,17 +55,17 @@ public class View extends JComponent {
         g.scale(viewScale, viewScale);
 
         gameState.draw(g);
-        drawPlayouts(g);
+        drawPlayouts(g, gameState);
 
         g.setTransform(at);
 
-        paintState(g);
+        paintState(g, gameState);
 
 //        g.setFont(font);
 //        g.drawString("Hello", 100, 100);
     }
 
-    private void drawPlayouts(Graphics2D g) {
+    private void drawPlayouts(Graphics2D g, AsteroidsGameState gameState) {
         try {
             //EvoAgentAdapter adapter = (EvoAgentAdapter) gameState.
 
@@ -105,6 +107,10 @@ public class View extends JComponent {
 
 
     public void paintState(Graphics2D g) {
+        paintState(g, gameState);
+    }
+
+    void paintState(Graphics2D g, AsteroidsGameState gameState) {
         g.setColor(Color.white);
         g.setFont(font);
         String str = "" + gameState.getScore() + " : " + gameState.forwardModel.nLives + " : " + gameState.state
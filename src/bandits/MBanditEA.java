@@ -2,9 +2,12 @@ package bandits;
 
 import evodef.EvoAlg;
 import evodef.EvolutionLogger;
+import evodef.Resampler;
 import evodef.SearchSpace;
 import evodef.SolutionEvaluator;
 import evodef.BanditLandscapeModel;
+import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.Random;
 
@@ -43,9 +46,21 @@ public class MBanditEA implements EvoAlg {
 
     }
 
+    Resampler resampler = Resampler.fixed(1);
+
     @Override
     public void setSamplingRate(int samplingRate) {
-        // not implemented for this algorithm
+        resampler = Resampler.fixed(samplingRate);
+    }
+
+    // a racing resampler races each mutation against the genome before it
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
+    }
+
+    StatSummary fitness(SolutionEvaluator evaluator, int[] sol, StatSummary incumbent) {
+        return resampler.sample(evaluator, sol, incumbent);
     }
 
 
@@ -54,14 +69,21 @@ public class MBanditEA implements EvoAlg {
     }
 
 
+    TimeBudget timeBudget;
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     // this runs a trial of the evolutionary algorithm
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int nEvals) {
 
         init(evaluator.searchSpace());
-        double bestYet = evaluator.evaluate(genome.toArray());
+        double bestYet = fitness(evaluator, genome.toArray(), null).mean();
         int nTrials = 1;
-        while (evaluator.nEvals() < nEvals && !evaluator.optimalFound()) {
+        while (evaluator.nEvals() < nEvals && !evaluator.optimalFound() && (timeBudget == null || timeBudget.next())) {
             // each evaluation, make a mutation
             // measure the fitness
             // and feed it back
@@ -74,17 +96,17 @@ public class MBanditEA implements EvoAlg {
 
             MBanditGene gene = genome.selectGeneToMutate(nTrials);
 
-            double before = evaluator.evaluate(genome.toArray());
+            StatSummary before = fitness(evaluator, genome.toArray(), null);
 
             gene.mutate();
-            double after = evaluator.evaluate(genome.toArray());
+            StatSummary after = fitness(evaluator, genome.toArray(), before);
 
             // the concept of trials is used a bit differently within this
             // algorithm - it's just used to control the bandit policy
             // and we're choosing to just increment it once per loop
             nTrials++;
 
-            double delta = after - before;
+            double delta = after.mean() - before.mean();
 
             // the noise here can be used to help the algorithm escape local minima
             // but should normally be set to zero
@@ -97,7 +119,7 @@ public class MBanditEA implements EvoAlg {
             gene.applyReward(delta);
             gene.revertOrKeep(delta);
 
-            bestYet = Math.max(before, after);
+            bestYet = Math.max(before.mean(), after.mean());
 
         }
 
@@ -43,7 +43,7 @@ public class BattleView extends JComponent {
 
     public void setRolls(int i, EvoAlg evoAlg) {
         try {
-            ArrayList<int[]> solutions = evoAlg.getLogger().solutions;
+            ArrayList<int[]> solutions = evoAlg.getLogger().getSolutions();
             rolls[i] = new int[solutions.size()][];
             for (int j = 0; j < solutions.size(); j++) {
                 rolls[i][j] = solutions.get(j);
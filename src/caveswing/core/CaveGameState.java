@@ -2,9 +2,13 @@ package caveswing.core;
 
 import ggi.core.AbstractGameState;
 import math.Vector2d;
+import utilities.Metrics;
 
 public class CaveGameState implements AbstractGameState {
 
+    static final Metrics.Counter copies = Metrics.counter("CaveSwing.copy");
+    static final Metrics.Counter ticks = Metrics.counter("CaveSwing.tick");
+
     public Map map;
     public CaveSwingParams params;
 
@@ -18,11 +22,29 @@ public class CaveGameState implements AbstractGameState {
     // boolean isAttached;
     public Anchor currentAnchor;
 
+    // params are shared with copies; true while no copy shares this state's
+    boolean ownsParams;
+
+    // the state takes a copy, so later changes to the caller's params do not reach it
     public CaveGameState setParams(CaveSwingParams params) {
-        this.params = params;
+        this.params = params.copy();
+        ownsParams = true;
         return this;
     }
 
+    /**
+     * Copy-on-write access to the params, for changing them in this state
+     * alone: the first call after the state has been copied gives it a
+     * private copy, so the change does not leak into the other copies.
+     */
+    public CaveSwingParams editParams() {
+        if (!ownsParams) {
+            params = params.copy();
+            ownsParams = true;
+        }
+        return params;
+    }
+
     public CaveGameState setup() {
         map = new Map().setup(params);
         avatar = new MovableObject();
@@ -33,15 +55,18 @@ public class CaveGameState implements AbstractGameState {
 
     @Override
     public AbstractGameState copy() {
+        copies.inc();
         CaveGameState cgs = new CaveGameState();
         // shallow copy the map and the current Anchor
         cgs.map = map;
         cgs.currentAnchor = currentAnchor;
         cgs.nextAnchorIndex = nextAnchorIndex;
         cgs.nTicks = nTicks;
-        // deep copy the avatar and the params
+        // deep copy the avatar; the params are shared, and neither state
+        // may now write to them except through editParams
         cgs.avatar = avatar.copy();
-        cgs.params = params.copy();
+        cgs.params = params;
+        ownsParams = false;
         cgs.gameOver = gameOver;
 
         return cgs;
@@ -52,6 +77,7 @@ public class CaveGameState implements AbstractGameState {
         // the array of actions is to allow for a multi-player game
         // quick return if game over
         if (isTerminal()) return this;
+        ticks.inc();
 
         // otherwise let's calculate the updates
         int action = actions[0];
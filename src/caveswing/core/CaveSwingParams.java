@@ -4,6 +4,12 @@ import math.Vector2d;
 
 import java.util.Random;
 
+/**
+ * CaveGameState.setParams takes its own copy of the params, which it then
+ * shares with all its copies; so change the values of a live state through
+ * CaveGameState.editParams(), which copies on write, never through its
+ * params field.
+ */
 public class CaveSwingParams {
     // duration
     public int maxTicks = 1000;
@@ -37,6 +43,7 @@ public class CaveSwingParams {
         params.gravity = gravity.copy();
         params.hooke = hooke;
         params.width = width;
+        params.height = height;
         params.nAnchors = nAnchors;
         params.meanAnchorHeight = meanAnchorHeight;
         params.random = random;
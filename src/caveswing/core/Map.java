@@ -1,10 +1,11 @@
 package caveswing.core;
 
 import math.Vector2d;
-import utilities.Picker;
 
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 
 public class Map {
     public ArrayList<Anchor> anchors;
@@ -17,13 +18,63 @@ public class Map {
         }
     }
 
-    public Anchor getClosestAnchor(Vector2d s) {
-        Picker<Anchor> picker = new Picker<>(Picker.MIN_FIRST);
-        for (Anchor a : anchors) {
-            picker.add(a.s.dist(s), a);
+    // anchor indices sorted by x position, plus the sorted x values;
+    // the map is shared by all copies of a game, so an index is never
+    // changed once built, only replaced as a whole
+    static class AnchorIndex {
+        final int[] byX;
+        final double[] xs;
+
+        AnchorIndex(ArrayList<Anchor> anchors) {
+            int n = anchors.size();
+            Integer[] order = new Integer[n];
+            for (int i=0; i<n; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingDouble(i -> anchors.get(i).s.x));
+            byX = new int[n];
+            xs = new double[n];
+            for (int i=0; i<n; i++) {
+                byX[i] = order[i];
+                xs[i] = anchors.get(order[i]).s.x;
+            }
         }
-        return picker.getBest();
+    }
+
+    private volatile AnchorIndex index;
 
+    public Anchor getClosestAnchor(Vector2d s) {
+        // binary search on x, then work outwards in both directions until
+        // the x gap alone exceeds the best distance so far
+        // for the usual evenly spaced layout this checks two or three anchors
+        // ties go to the anchor that comes first in the list, as for a linear scan
+        if (anchors.isEmpty()) return null;
+        AnchorIndex index = this.index;
+        // rebuilt if anchors were added to the list after setAnchors
+        if (index == null || index.byX.length != anchors.size()) {
+            this.index = index = new AnchorIndex(anchors);
+        }
+        int[] byX = index.byX;
+        double[] xs = index.xs;
+        int start = Arrays.binarySearch(xs, s.x);
+        if (start < 0) start = -start - 1;
+        int best = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+        for (int i=start; i<xs.length && xs[i] - s.x <= bestDist; i++) {
+            int j = byX[i];
+            double d = anchors.get(j).s.dist(s);
+            if (d < bestDist || (d == bestDist && j < best)) {
+                best = j;
+                bestDist = d;
+            }
+        }
+        for (int i=start-1; i>=0 && s.x - xs[i] <= bestDist; i--) {
+            int j = byX[i];
+            double d = anchors.get(j).s.dist(s);
+            if (d < bestDist || (d == bestDist && j < best)) {
+                best = j;
+                bestDist = d;
+            }
+        }
+        return best < 0 ? null : anchors.get(best);
     }
 
     // the map specifies the dimensions and the set of anchors
@@ -43,6 +94,7 @@ public class Map {
             anchors.add(new Anchor().setHooke(hooke).setPosition(s));
             x += gap;
         }
+        index = new AnchorIndex(anchors);
         return this;
     }
 
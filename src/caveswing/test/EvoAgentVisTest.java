@@ -57,7 +57,7 @@ public class EvoAgentVisTest {
 
             CaveGameState viewState = ((CaveGameState) gameState.copy());
             if (useFalseModel) viewState.setParams(falseParams);
-            view.playouts = player.evoAlg.getLogger().solutions;
+            view.playouts = player.evoAlg.getLogger().getSolutions();
             view.setGameState(viewState).repaint();
             frame.setTitle(title + " : " + gameState.nTicks + " : " + gameState.isTerminal());
             Thread.sleep(50);
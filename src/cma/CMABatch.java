@@ -0,0 +1,109 @@
+package cma;
+
+import fr.inria.optimization.cmaes.CMAEvolutionStrategy;
+import fr.inria.optimization.cmaes.fitness.IObjectiveFunction;
+import utilities.DaemonPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Batch ask / tell over a CMAEvolutionStrategy.  ask() hands out the whole
+ * population at once; tell(i, fitness) takes the candidates' fitness values
+ * in any order, and updates the distribution once all have come in.
+ *
+ * evaluateGeneration does a whole generation with an objective function,
+ * on a pool of threads if setParallel was called, so the objective must
+ * then be safe to call from several threads at once.  Each worker makes
+ * its own candidate feasible first, by resampling it; the resampling
+ * draws on the strategy's shared state, so it is done one at a time,
+ * which makes runs with infeasible samples depend on the thread timing.
+ */
+public class CMABatch {
+
+    CMAEvolutionStrategy cma;
+    ExecutorService pool;
+
+    double[][] population;
+    double[] fitness;
+    boolean[] told;
+    int nTold;
+
+    public CMABatch(CMAEvolutionStrategy cma) {
+        this.cma = cma;
+    }
+
+    /**
+     * Generations are evaluated on nThreads threads; 1 or less evaluates
+     * the candidates one at a time.
+     */
+    public CMABatch setParallel(int nThreads) {
+        shutdown();
+        pool = nThreads > 1 ? DaemonPool.newFixedPool(nThreads, "CMABatch") : null;
+        return this;
+    }
+
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
+        pool = null;
+    }
+
+    public synchronized double[][] ask() {
+        population = cma.samplePopulation();
+        fitness = new double[population.length];
+        told = new boolean[population.length];
+        nTold = 0;
+        return population;
+    }
+
+    // a new sample in place of candidate i, for one that is not feasible
+    public synchronized double[] resample(int i) {
+        return population[i] = cma.resampleSingle(i);
+    }
+
+    /**
+     * Returns true when this completed the population, and the
+     * distribution has been updated.
+     */
+    public synchronized boolean tell(int i, double fitness) {
+        if (told[i]) throw new IllegalStateException("Fitness already told for candidate " + i);
+        told[i] = true;
+        this.fitness[i] = fitness;
+        if (++nTold < population.length) return false;
+        cma.updateDistribution(this.fitness);
+        return true;
+    }
+
+    public boolean isDone() {
+        return cma.stopConditions.getNumber() != 0;
+    }
+
+    public void evaluateGeneration(IObjectiveFunction fitFun) {
+        double[][] pop = ask();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < pop.length; i++) {
+            int ix = i;
+            Runnable task = () -> {
+                double[] x = pop[ix];
+                // blind re-sampling, as in the CMA examples, assumes a convex feasible domain
+                while (!fitFun.isFeasible(x))
+                    x = resample(ix);
+                tell(ix, fitFun.valueOf(x));
+            };
+            if (pool != null) {
+                futures.add(pool.submit(task));
+            } else {
+                task.run();
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                throw new RuntimeException("CMA evaluation failed", e);
+            }
+        }
+    }
+}
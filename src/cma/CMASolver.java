@@ -18,6 +18,7 @@ public class CMASolver implements Solver {
     IObjectiveFunction fitFun;
     int nDim;
     CMAEvolutionStrategy cma;
+    CMABatch batch;
 
     public CMASolver(IObjectiveFunction fitFun, int nDim, int maxEvals) {
         this.fitFun = fitFun;
@@ -31,6 +32,7 @@ public class CMASolver implements Solver {
         // cma.options.stopMaxIter = 100;
         cma.options.stopMaxFunEvals = maxEvals;
         System.out.println("Diagonal: " + cma.options.diagonalCovarianceMatrix);
+        batch = new CMABatch(cma);
 
     }
 
@@ -39,6 +41,16 @@ public class CMASolver implements Solver {
         cma.setDimension(n);
     }
 
+    // evaluate each population on nThreads threads; the objective must then be thread safe
+    public CMASolver setParallel(int nThreads) {
+        batch.setParallel(nThreads);
+        return this;
+    }
+
+    public void shutdown() {
+        batch.shutdown();
+    }
+
     public void setInitialX(double x) {
         cma.setInitialX(x);
     }
@@ -57,8 +69,8 @@ public class CMASolver implements Solver {
 
         // new a CMA-ES and set some initial values
 
-        // initialize cma and get fitness array to fill in later
-        double[] fitness = cma.init();  // new double[cma.parameters.getPopulationSize()];
+        // initialize cma
+        cma.init();
 
         // initial output to files
         cma.writeToDefaultFilesHeaders(0); // 0 == overwrites old files
@@ -67,18 +79,9 @@ public class CMASolver implements Solver {
         while (cma.stopConditions.getNumber() == 0) {
 
             // --- core iteration step ---
-            double[][] pop = cma.samplePopulation(); // get a new population of solutions
-            for (int i = 0; i < pop.length; ++i) {    // for each candidate solution i
-                // a simple way to handle constraints that define a convex feasible domain
-                // (like box constraints, i.e. variable boundaries) via "blind re-sampling"
-                // assumes that the feasible domain is convex, the optimum is
-                while (!fitFun.isFeasible(pop[i]))     //   not located on (or very close to) the domain boundary,
-                    pop[i] = cma.resampleSingle(i);    //   initialX is feasible and initialStandardDeviations are
-                //   sufficiently small to prevent quasi-infinite looping here
-                // compute fitness/objective value
-                fitness[i] = fitFun.valueOf(pop[i]); // fitfun.valueOf() is to be minimized
-            }
-            cma.updateDistribution(fitness);         // pass fitness array to update search distribution
+            // sample a population, make each candidate feasible by "blind re-sampling",
+            // evaluate them (on the pool, if parallel) and update the search distribution
+            batch.evaluateGeneration(fitFun);
             // --- end core iteration step ---
 
             // output to files and console
@@ -1,5 +1,6 @@
 package cma.noisyopt;
 
+import cma.CMABatch;
 import cma.QuadraticBowl;
 import cma.Solver;
 import fr.inria.optimization.cmaes.CMAEvolutionStrategy;
@@ -14,6 +15,7 @@ public class CMANoisySolver implements Solver {
     IObjectiveFunction fitFun;
     int nDim;
     CMAEvolutionStrategy cma;
+    CMABatch batch;
 
     public CMANoisySolver(IObjectiveFunction fitFun, int nDim, int maxEvals) {
         this.fitFun = fitFun;
@@ -27,6 +29,7 @@ public class CMANoisySolver implements Solver {
         // cma.options.stopMaxIter = 100;
         cma.options.stopMaxFunEvals = maxEvals;
         System.out.println("Diagonal: " + cma.options.diagonalCovarianceMatrix);
+        batch = new CMABatch(cma);
 
     }
 
@@ -35,6 +38,16 @@ public class CMANoisySolver implements Solver {
         cma.setDimension(n);
     }
 
+    // evaluate each population on nThreads threads; the objective must then be thread safe
+    public CMANoisySolver setParallel(int nThreads) {
+        batch.setParallel(nThreads);
+        return this;
+    }
+
+    public void shutdown() {
+        batch.shutdown();
+    }
+
     public void setInitialX(double x) {
         cma.setInitialX(x);
     }
@@ -53,8 +66,8 @@ public class CMANoisySolver implements Solver {
 
         // new a CMA-ES and set some initial values
 
-        // initialize cma and get fitness array to fill in later
-        double[] fitness = cma.init();  // new double[cma.parameters.getPopulationSize()];
+        // initialize cma
+        cma.init();
 
         // initial output to files
         cma.writeToDefaultFilesHeaders(0); // 0 == overwrites old files
@@ -63,18 +76,9 @@ public class CMANoisySolver implements Solver {
         while (cma.stopConditions.getNumber() == 0) {
 
             // --- core iteration step ---
-            double[][] pop = cma.samplePopulation(); // get a new population of solutions
-            for (int i = 0; i < pop.length; ++i) {    // for each candidate solution i
-                // a simple way to handle constraints that define a convex feasible domain
-                // (like box constraints, i.e. variable boundaries) via "blind re-sampling"
-                // assumes that the feasible domain is convex, the optimum is
-                while (!fitFun.isFeasible(pop[i]))     //   not located on (or very close to) the domain boundary,
-                    pop[i] = cma.resampleSingle(i);    //   initialX is feasible and initialStandardDeviations are
-                //   sufficiently small to prevent quasi-infinite looping here
-                // compute fitness/objective value
-                fitness[i] = fitFun.valueOf(pop[i]); // fitfun.valueOf() is to be minimized
-            }
-            cma.updateDistribution(fitness);         // pass fitness array to update search distribution
+            // sample a population, make each candidate feasible by "blind re-sampling",
+            // evaluate them (on the pool, if parallel) and update the search distribution
+            batch.evaluateGeneration(fitFun);
             // --- end core iteration step ---
 
             // output to files and console
@@ -4,6 +4,8 @@ import core.game.StateObservationMulti;
 import core.player.AbstractMultiPlayer;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
+import utilities.DaemonPool;
+import utilities.TimeBudget;
 
 import java.util.ArrayList;
 import java.util.Random;
@@ -17,6 +19,15 @@ import java.util.Random;
  */
 public class Agent extends AbstractMultiPlayer {
 
+    // the framework makes the agent by reflection, so, as in the single
+    // player Agent, it is configured through these statics, read when the
+    // agent is made
+    // when true, plan until the framework's deadline each tick
+    public static boolean USE_TIME_BUDGET = false;
+    // search on N_THREADS threads when set, see ParallelMCTSPlayer
+    public static ParallelMCTSPlayer.Mode PARALLEL_MODE = null;
+    public static int N_THREADS = DaemonPool.nCores();
+
     public int[] NUM_ACTIONS;
     public Types.ACTIONS[][] actions;
     public int id, oppID, no_players;
@@ -55,7 +66,11 @@ public class Agent extends AbstractMultiPlayer {
     }
 
     public SingleMCTSPlayer getPlayer(StateObservationMulti so, ElapsedCpuTimer elapsedTimer, int[] NUM_ACTIONS, Types.ACTIONS[][] actions, int id, int oppID, int no_players) {
-        return new SingleMCTSPlayer(new Random(), NUM_ACTIONS, actions, id, oppID, no_players);
+        SingleMCTSPlayer player = PARALLEL_MODE == null ?
+                new SingleMCTSPlayer(new Random(), NUM_ACTIONS, actions, id, oppID, no_players) :
+                new ParallelMCTSPlayer(new Random(), NUM_ACTIONS, actions, id, oppID, no_players, PARALLEL_MODE, N_THREADS);
+        if (USE_TIME_BUDGET) player.timeBudget = new TimeBudget(0);
+        return player;
     }
 
 
@@ -0,0 +1,128 @@
+package controllers.multiPlayer.discountOLMCTS;
+
+import core.game.StateObservationMulti;
+import ontology.Types;
+import tools.ElapsedCpuTimer;
+import utilities.DaemonPool;
+import utilities.TimeBudget;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+/**
+ * MCTS player that searches on several threads.
+ *
+ * ROOT: each thread grows its own tree from the same root state with its
+ * own random generator; the root statistics of all the trees are then
+ * summed into m_root, and the action is chosen from those as usual.
+ *
+ * TREE: all threads grow the one tree in m_root, using virtual loss to
+ * spread out over different branches (see SingleTreeNode.VIRTUAL_LOSS).
+ *
+ * With a fixed iteration count each thread runs m_root.MCTS_ITERATIONS
+ * iterations; with a time budget each thread searches until the deadline.
+ * The threads come from DaemonPool.shared(), so nothing needs shutting down.
+ */
+public class ParallelMCTSPlayer extends SingleMCTSPlayer {
+
+    public enum Mode {ROOT, TREE}
+
+    public Mode mode;
+    public int nThreads;
+
+    Random[] workerRandoms;
+    TimeBudget[] budgets;
+
+    public ParallelMCTSPlayer(Random a_rnd, int[] NUM_ACTIONS, Types.ACTIONS[][] actions, int id, int oppID, int no_players,
+                              Mode mode, int nThreads) {
+        super(a_rnd, NUM_ACTIONS, actions, id, oppID, no_players);
+        this.mode = mode;
+        this.nThreads = nThreads;
+        workerRandoms = new Random[nThreads];
+        budgets = new TimeBudget[nThreads];
+        for (int i = 0; i < nThreads; i++) {
+            workerRandoms[i] = new Random(a_rnd.nextLong());
+            budgets[i] = new TimeBudget(0);
+        }
+    }
+
+    @Override
+    public void init(StateObservationMulti a_gameState) {
+        super.init(a_gameState);
+        m_root.parallel = mode == Mode.TREE;
+        m_root.concurrent = mode == Mode.TREE;
+    }
+
+    @Override
+    public int run(ElapsedCpuTimer elapsedTimer) {
+        boolean timed = timeBudget != null;
+        if (timed) {
+            long millis = elapsedTimer.remainingTimeMillis() - timeMarginMillis;
+            for (TimeBudget budget : budgets) budget.start(millis);
+        }
+
+        SingleTreeNode[] roots = new SingleTreeNode[nThreads];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < nThreads; i++) {
+            TimeBudget budget = timed ? budgets[i] : null;
+            // each worker only copies from its own copy of the root state,
+            // so no one state is ever copied by two threads at once
+            StateObservationMulti from = m_root.rootState.copy();
+            if (mode == Mode.ROOT) {
+                SingleTreeNode root = new SingleTreeNode(workerRandoms[i], NUM_ACTIONS, actions, id, oppID, no_players);
+                root.MCTS_ITERATIONS = m_root.MCTS_ITERATIONS;
+                root.ROLLOUT_DEPTH = m_root.ROLLOUT_DEPTH;
+                root.K = m_root.K;
+                root.REWARD_DISCOUNT = m_root.REWARD_DISCOUNT;
+                root.parallel = true;
+                root.rootState = from;
+                roots[i] = root;
+                futures.add(DaemonPool.shared().submit(() -> root.mctsSearch(elapsedTimer, budget)));
+            } else {
+                Random rnd = workerRandoms[i];
+                futures.add(DaemonPool.shared().submit(() -> {
+                    SingleTreeNode.WORKER_RANDOM.set(rnd);
+                    try {
+                        int numIters = 0;
+                        while (budget == null ? numIters < m_root.MCTS_ITERATIONS : budget.next()) {
+                            m_root.iterate(from);
+                            numIters++;
+                        }
+                    } finally {
+                        SingleTreeNode.WORKER_RANDOM.remove();
+                    }
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                throw new RuntimeException("Search failed", e);
+            }
+        }
+
+        if (mode == Mode.ROOT) merge(roots);
+
+        //Determine the best action to take and return it.
+        return m_root.mostVisitedAction();
+    }
+
+    void merge(SingleTreeNode[] roots) {
+        for (SingleTreeNode root : roots) {
+            m_root.nVisits += root.nVisits;
+            m_root.totValue += root.totValue;
+            for (int a = 0; a < m_root.children.length; a++) {
+                SingleTreeNode child = root.children[a];
+                if (child == null) continue;
+                if (m_root.children[a] == null) {
+                    m_root.children[a] = new SingleTreeNode(m_root, a, m_rnd, id, oppID, no_players, NUM_ACTIONS, actions);
+                }
+                m_root.children[a].nVisits += child.nVisits;
+                m_root.children[a].totValue += child.totValue;
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package controllers.multiPlayer.discountOLMCTS;
 import core.game.StateObservationMulti;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
+import utilities.TimeBudget;
 
 import java.util.Random;
 
@@ -30,6 +31,13 @@ public class SingleMCTSPlayer
     public Random m_rnd;
     public int id, oppID, no_players;
 
+    /**
+     * If set, search until the time given by the ElapsedCpuTimer runs out
+     * (less timeMarginMillis) instead of for a fixed number of iterations.
+     */
+    public TimeBudget timeBudget;
+    public long timeMarginMillis = 2;
+
 
     public SingleMCTSPlayer(Random a_rnd, int[] NUM_ACTIONS, Types.ACTIONS[][] actions, int id, int oppID, int no_players)
     {
@@ -61,7 +69,10 @@ public class SingleMCTSPlayer
     public int run(ElapsedCpuTimer elapsedTimer)
     {
         //Do the search within the available time.
-        m_root.mctsSearch(elapsedTimer);
+        if (timeBudget != null) {
+            timeBudget.start(elapsedTimer.remainingTimeMillis() - timeMarginMillis);
+        }
+        m_root.mctsSearch(elapsedTimer, timeBudget);
 
         //Determine the best action to take and return it.
         int action = m_root.mostVisitedAction();
@@ -4,6 +4,7 @@ import core.game.StateObservationMulti;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
 import tools.Utils;
+import utilities.TimeBudget;
 
 import java.util.Arrays;
 import java.util.Random;
@@ -33,8 +34,27 @@ public class SingleTreeNode
 
     public StateObservationMulti rootState;
 
+    // only counts iterations run on the calling thread, see parallel below
     public static int nIts = 0;
 
+    // parallel: this tree is searched from a worker thread
+    // concurrent: several threads search this tree at once, so child creation
+    // and statistics updates are locked, selection applies virtual loss and
+    // random numbers come from the searching thread's own generator
+    // both are inherited from the parent
+    // the locking is as in the single player SingleTreeNode
+    public boolean parallel;
+    public boolean concurrent;
+    // number of iterations currently passing through this node
+    int inFlight;
+
+    // each pending iteration through a child counts as this many visits
+    // that scored the minimum, steering other threads elsewhere
+    public static double VIRTUAL_LOSS = 1.0;
+
+    // set by each worker thread of a tree-parallel search
+    public static final ThreadLocal<Random> WORKER_RANDOM = new ThreadLocal<>();
+
     public SingleTreeNode(Random rnd, int[] NUM_ACTIONS, Types.ACTIONS[][] actions, int id, int oppID, int no_players) {
         this(null, -1, rnd, id, oppID, no_players, NUM_ACTIONS, actions);
     }
@@ -47,8 +67,11 @@ public class SingleTreeNode
         this.m_rnd = rnd;
         totValue = 0.0;
         this.childIdx = childIdx;
-        if(parent != null)
+        if(parent != null) {
             m_depth = parent.m_depth+1;
+            parallel = parent.parallel;
+            concurrent = parent.concurrent;
+        }
         else
             m_depth = 0;
         this.NUM_ACTIONS = NUM_ACTIONS;
@@ -56,36 +79,51 @@ public class SingleTreeNode
         this.actions = actions;
     }
 
+    Random rnd() {
+        if (concurrent) {
+            Random rnd = WORKER_RANDOM.get();
+            if (rnd != null) return rnd;
+        }
+        return m_rnd;
+    }
+
 
     public void mctsSearch(ElapsedCpuTimer elapsedTimer) {
+        mctsSearch(elapsedTimer, null);
+    }
 
-        double avgTimeTaken = 0;
-        double acumTimeTaken = 0;
-        long remaining = elapsedTimer.remainingTimeMillis();
-        int numIters = 0;
+    /**
+     * Runs MCTS_ITERATIONS iterations if budget is null, otherwise
+     * as many as the (already started) budget allows.
+     */
+    public void mctsSearch(ElapsedCpuTimer elapsedTimer, TimeBudget budget) {
 
-        int remainingLimit = 5;
-        // while(remaining > 2*avgTimeTaken && remaining > remainingLimit){
-        while(numIters < MCTS_ITERATIONS){
+        int numIters = 0;
 
-            StateObservationMulti state = rootState.copy();
+        while(budget == null ? numIters < MCTS_ITERATIONS : budget.next()){
 
-            ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
-            SingleTreeNode selected = treePolicy(state);
-            double delta = selected.rollOut(state);
-            backUp(selected, delta);
+            iterate(rootState);
 
             numIters++;
-            acumTimeTaken += (elapsedTimerIteration.elapsedMillis()) ;
-            //System.out.println(elapsedTimerIteration.elapsedMillis() + " --> " + acumTimeTaken + " (" + remaining + ")");
-            avgTimeTaken  = acumTimeTaken/numIters;
-            remaining = elapsedTimer.remainingTimeMillis();
 
-            nIts++;
+            if (!parallel) nIts++;
         }
         // System.out.println("Total iterations = " + nIts);
     }
 
+    /**
+     * One select-expand-rollout-backup pass starting from a copy of the
+     * given state, which in a tree-parallel search is the calling thread's
+     * own copy of the root state.
+     */
+    void iterate(StateObservationMulti from) {
+        StateObservationMulti state = from.copy();
+
+        SingleTreeNode selected = treePolicy(state);
+        double delta = selected.rollOut(state);
+        backUp(selected, delta);
+    }
+
     public SingleTreeNode treePolicy(StateObservationMulti state) {
 
         SingleTreeNode cur = this;
@@ -93,12 +131,12 @@ public class SingleTreeNode
         while (!state.isGameOver() && cur.m_depth < ROLLOUT_DEPTH)
         {
             if (cur.notFullyExpanded()) {
-                return cur.expand(state);
-
-            } else {
-                SingleTreeNode next = cur.uct(state);
-                cur = next;
+                SingleTreeNode tn = cur.expand(state);
+                // null only when another thread expanded the last child first
+                if (tn != null) return tn;
             }
+            SingleTreeNode next = cur.uct(state);
+            cur = next;
         }
 
         return cur;
@@ -106,6 +144,7 @@ public class SingleTreeNode
 
 
     public SingleTreeNode expand(StateObservationMulti state) {
+        if (concurrent) return expandConcurrent(state);
 
         int bestAction = 0;
         double bestValue = -1;
@@ -142,10 +181,77 @@ public class SingleTreeNode
         return tn;
     }
 
+    private SingleTreeNode expandConcurrent(StateObservationMulti state) {
+
+        SingleTreeNode tn;
+        synchronized (this) {
+            Random rnd = rnd();
+            int bestAction = -1;
+            double bestValue = -1;
+
+            for (int i = 0; i < children.length; i++) {
+                double x = rnd.nextDouble();
+                if (x > bestValue && children[i] == null) {
+                    bestAction = i;
+                    bestValue = x;
+                }
+            }
+            if (bestAction < 0) return null;
+
+            tn = new SingleTreeNode(this,bestAction,this.m_rnd, id, oppID, no_players, NUM_ACTIONS, actions);
+            tn.inFlight = 1;
+            children[bestAction] = tn;
+        }
+
+        //Roll the state, with a random opponent action as in expand
+        Types.ACTIONS[] acts = new Types.ACTIONS[no_players];
+        acts[id] = actions[id][tn.childIdx];
+        Types.ACTIONS[] oppActions = actions[oppID];
+        acts[oppID] = oppActions[rnd().nextInt(oppActions.length)];
+
+        state.advance(acts);
+        return tn;
+    }
+
     public SingleTreeNode uct(StateObservationMulti state) {
 
+        SingleTreeNode selected = concurrent ? selectChildLocked(visitsLocked()) : selectChild(nVisits);
+
+        //Roll the state:
+
+        //need to provide actions for all players to advance the forward model
+        Types.ACTIONS[] acts = new Types.ACTIONS[no_players];
+
+        //set this agent's action
+        acts[id] = actions[id][selected.childIdx];
+
+        //get actions available to the opponent and assume they will do a random action
+        Types.ACTIONS[] oppActions = actions[oppID];
+        acts[oppID] = oppActions[concurrent ? rnd().nextInt(oppActions.length) : new Random().nextInt(oppActions.length)];
+
+        state.advance(acts);
+
+        return selected;
+    }
+
+    // read under the parent's monitor, as backUp writes it
+    private double visitsLocked() {
+        synchronized (parent != null ? parent : this) {
+            return nVisits;
+        }
+    }
+
+    private synchronized SingleTreeNode selectChildLocked(double nodeVisits) {
+        SingleTreeNode selected = selectChild(nodeVisits);
+        selected.inFlight++;
+        return selected;
+    }
+
+    private SingleTreeNode selectChild(double nodeVisits) {
+
         SingleTreeNode selected = null;
         double bestValue = -Double.MAX_VALUE;
+        Random rnd = rnd();
         for (SingleTreeNode child : this.children)
         {
             double hvVal = child.totValue;
@@ -154,10 +260,17 @@ public class SingleTreeNode
             childValue = Utils.normalise(childValue, bounds[0], bounds[1]);
             //System.out.println("norm child value: " + childValue);
 
+            double visits = child.nVisits;
+            if (child.inFlight > 0) {
+                double virtualVisits = child.inFlight * VIRTUAL_LOSS;
+                childValue *= visits / (visits + virtualVisits);
+                visits += virtualVisits;
+            }
+
             double uctValue = childValue +
-                    K * Math.sqrt(Math.log(this.nVisits + 1) / (child.nVisits + this.epsilon));
+                    K * Math.sqrt(Math.log(nodeVisits + 1) / (visits + this.epsilon));
 
-            uctValue = Utils.noise(uctValue, this.epsilon, this.m_rnd.nextDouble());     //break ties randomly
+            uctValue = Utils.noise(uctValue, this.epsilon, rnd.nextDouble());     //break ties randomly
 
             // small sampleRandom numbers: break ties in unexpanded nodes
             if (uctValue > bestValue) {
@@ -171,20 +284,6 @@ public class SingleTreeNode
             + bounds[0] + " " + bounds[1]);
         }
 
-        //Roll the state:
-
-        //need to provide actions for all players to advance the forward model
-        Types.ACTIONS[] acts = new Types.ACTIONS[no_players];
-
-        //set this agent's action
-        acts[id] = actions[id][selected.childIdx];
-
-        //get actions available to the opponent and assume they will do a random action
-        Types.ACTIONS[] oppActions = actions[oppID];
-        acts[oppID] = oppActions[new Random().nextInt(oppActions.length)];
-
-        state.advance(acts);
-
         return selected;
     }
 
@@ -192,13 +291,14 @@ public class SingleTreeNode
     public double rollOut(StateObservationMulti state)
     {
         int thisDepth = this.m_depth;
+        Random rnd = rnd();
 
         while (!finishRollout(state,thisDepth)) {
 
             //random move for all players
             Types.ACTIONS[] acts = new Types.ACTIONS[no_players];
             for (int i = 0; i < no_players; i++) {
-                acts[i] = actions[i][m_rnd.nextInt(NUM_ACTIONS[i])];
+                acts[i] = actions[i][rnd.nextInt(NUM_ACTIONS[i])];
             }
             state.advance(acts);
             thisDepth++;
@@ -207,16 +307,26 @@ public class SingleTreeNode
 
         double delta = value(state);
 
-        if(delta < bounds[0])
-            bounds[0] = delta;
-        if(delta > bounds[1])
-            bounds[1] = delta;
+        if (concurrent) {
+            synchronized (this) {
+                updateBounds(delta);
+            }
+        } else {
+            updateBounds(delta);
+        }
 
         //double normDelta = Utils.normalise(delta ,lastBounds[0], lastBounds[1]);
 
         return delta;
     }
 
+    private void updateBounds(double delta) {
+        if(delta < bounds[0])
+            bounds[0] = delta;
+        if(delta > bounds[1])
+            bounds[1] = delta;
+    }
+
     public double value(StateObservationMulti a_gameState) {
 
         boolean gameOver = a_gameState.isGameOver();
@@ -250,8 +360,17 @@ public class SingleTreeNode
         SingleTreeNode n = node;
         while(n != null)
         {
-            n.nVisits++;
-            n.totValue += result;
+            if (n.concurrent) {
+                // child statistics are read under the parent's lock in uct
+                synchronized (n.parent != null ? n.parent : n) {
+                    n.nVisits++;
+                    n.totValue += result;
+                    if (n.parent != null) n.inFlight--;
+                }
+            } else {
+                n.nVisits++;
+                n.totValue += result;
+            }
             n = n.parent;
         }
     }
@@ -7,8 +7,11 @@ import evodef.EvoAlg;
 import evodef.GameActionSpaceAdapter;
 import evodef.GameActionSpaceAdapterMulti;
 import evodef.SearchSpaceUtil;
+import ntuple.NTupleBanditEA;
+import ntuple.NTupleSystem;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
+import utilities.TimeBudget;
 
 import java.util.ArrayList;
 
@@ -144,11 +147,43 @@ public class Agent extends AbstractMultiPlayer {
         return this;
     }
 
+    // if set, plan until the framework's deadline each tick instead of for nEvals
+    TimeBudget timeBudget;
+    public long timeMarginMillis = 2;
+
+    public Agent setUseTimeBudget(boolean useTimeBudget) {
+        timeBudget = useTimeBudget ? new TimeBudget(0) : null;
+        evoAlg.setTimeBudget(timeBudget);
+        return this;
+    }
+
     public Agent setUseShiftBuffer(boolean useShiftBuffer) {
         this.useShiftBuffer = useShiftBuffer;
         return this;
     }
 
+    // with an NTupleBanditEA, carry the landscape model over from one tick
+    // to the next, shifted along by one action (see NTupleSystem.shiftLeft)
+    // with its statistics decayed by modelDecay, instead of starting afresh
+    public boolean useModelTransfer = false;
+    public double modelDecay = 0.5;
+
+    public Agent setUseModelTransfer(boolean useModelTransfer) {
+        if (useModelTransfer && !(evoAlg instanceof NTupleBanditEA)) {
+            throw new UnsupportedOperationException(evoAlg.getClass().getSimpleName() + " has no model to transfer");
+        }
+        this.useModelTransfer = useModelTransfer;
+        if (evoAlg instanceof NTupleBanditEA) {
+            ((NTupleBanditEA) evoAlg).setKeepModel(useModelTransfer);
+        }
+        return this;
+    }
+
+    public Agent setModelDecay(double modelDecay) {
+        this.modelDecay = modelDecay;
+        return this;
+    }
+
     @Override
     public Types.ACTIONS act(StateObservationMulti stateObs, ElapsedCpuTimer elapsedCpuTimer) {
         //Set the state observation object as the new root of the tree.
@@ -169,7 +204,16 @@ public class Agent extends AbstractMultiPlayer {
             evoAlg.setInitialSeed(solution);
         }
 
-        solution = evoAlg.runTrial(gameAdapter, nEvals);
+        if (useModelTransfer && evoAlg.getModel() instanceof NTupleSystem) {
+            ((NTupleSystem) evoAlg.getModel()).shiftLeft(modelDecay);
+        }
+
+        if (timeBudget != null) {
+            timeBudget.start(elapsedCpuTimer.remainingTimeMillis() - timeMarginMillis);
+            solution = evoAlg.runTrial(gameAdapter, Integer.MAX_VALUE);
+        } else {
+            solution = evoAlg.runTrial(gameAdapter, nEvals);
+        }
 
 
         // now if we're running verbose, then plot the solutions found by the algorithm
@@ -4,8 +4,10 @@ import core.game.StateObservation;
 import core.player.AbstractPlayer;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
+import utilities.DaemonPool;
 import utilities.ElapsedTimer;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.ArrayList;
 import java.util.Random;
@@ -21,8 +23,17 @@ public class Agent extends AbstractPlayer {
 
     public static StatSummary ss = new StatSummary();
 
+    // the framework makes the agent by reflection, so it is configured
+    // through these statics; the player is chosen when the agent is made
     public static int MCTS_ITERATIONS = 20;
+    // when true, ignore MCTS_ITERATIONS and use all the time the framework allows
+    public static boolean USE_TIME_BUDGET = false;
     public static double REWARD_DISCOUNT = 1.00;
+    // search on N_THREADS threads when set, see ParallelMCTSPlayer
+    public static ParallelMCTSPlayer.Mode PARALLEL_MODE = null;
+    public static int N_THREADS = DaemonPool.nCores();
+    // use the array-backed tree, reusing the subtree of the move played
+    public static boolean USE_ARRAY_TREE = false;
     public int num_actions;
     public Types.ACTIONS[] actions;
 
@@ -51,7 +62,16 @@ public class Agent extends AbstractPlayer {
     }
 
     public SingleMCTSPlayer getPlayer(StateObservation so, ElapsedCpuTimer elapsedTimer) {
-        return new SingleMCTSPlayer(new Random(), num_actions, actions);
+        SingleMCTSPlayer player;
+        if (PARALLEL_MODE != null) {
+            player = new ParallelMCTSPlayer(new Random(), num_actions, actions, PARALLEL_MODE, N_THREADS);
+        } else if (USE_ARRAY_TREE) {
+            player = new ArrayMCTSPlayer(new Random(), num_actions, actions);
+        } else {
+            player = new SingleMCTSPlayer(new Random(), num_actions, actions);
+        }
+        if (USE_TIME_BUDGET) player.timeBudget = new TimeBudget(0);
+        return player;
     }
 
 
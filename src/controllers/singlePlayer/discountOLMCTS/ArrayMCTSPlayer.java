@@ -0,0 +1,49 @@
+package controllers.singlePlayer.discountOLMCTS;
+
+import core.game.StateObservation;
+import ontology.Types;
+import tools.ElapsedCpuTimer;
+
+import java.util.Random;
+
+/**
+ * MCTS player backed by an ArrayTree, so that a long running agent
+ * allocates no tree nodes once its arrays have grown to size.
+ *
+ * With reuseTree set, the subtree under the action returned by the
+ * previous call to run() becomes the root of the next search.
+ */
+public class ArrayMCTSPlayer extends SingleMCTSPlayer {
+
+    public static int DEFAULT_CAPACITY = 1 << 12;
+
+    public ArrayTree tree;
+    public boolean reuseTree = true;
+
+    int lastAction = -1;
+
+    public ArrayMCTSPlayer(Random a_rnd, int num_actions, Types.ACTIONS[] actions) {
+        super(a_rnd, num_actions, actions);
+        tree = new ArrayTree(a_rnd, num_actions, actions, DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public void init(StateObservation a_gameState) {
+        if (reuseTree && lastAction >= 0) {
+            tree.reroot(lastAction);
+        } else {
+            tree.reset();
+        }
+        tree.rootState = a_gameState;
+    }
+
+    @Override
+    public int run(ElapsedCpuTimer elapsedTimer) {
+        if (timeBudget != null) {
+            timeBudget.start(elapsedTimer.remainingTimeMillis() - timeMarginMillis);
+        }
+        tree.mctsSearch(timeBudget);
+        lastAction = tree.bestAction();
+        return lastAction;
+    }
+}
@@ -0,0 +1,366 @@
+package controllers.singlePlayer.discountOLMCTS;
+
+import core.game.StateObservation;
+import ontology.Types;
+import tools.Utils;
+import utilities.TimeBudget;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Open loop MCTS tree held in parallel primitive arrays instead of
+ * SingleTreeNode objects.
+ *
+ * The children of a node are allocated together as one block of
+ * num_actions slots, so the child for action a is firstChild[node] + a
+ * and a child slot that has never been visited is simply unexpanded.
+ * The arrays belong to the tree and grow only when a search needs more
+ * nodes than ever before; reset() empties the tree in O(1), and reroot()
+ * keeps the subtree under the action actually played by copying it into
+ * a second set of arrays, which are then swapped with the first.
+ *
+ * Apart from the storage, the search follows SingleTreeNode step for
+ * step, drawing the same random numbers in the same order.
+ */
+public class ArrayTree {
+
+    static final int NONE = -1;
+
+    private final double HUGE_NEGATIVE = -10000000.0;
+    private final double HUGE_POSITIVE =  10000000.0;
+    public double epsilon = 1e-6;
+
+    public int ROLLOUT_DEPTH = SingleTreeNode.DEFAULT_ROLLOUT_DEPTH;
+    public double K = Math.sqrt(2);
+
+    public Random m_rnd;
+    public int num_actions;
+    Types.ACTIONS[] actions;
+
+    public StateObservation rootState;
+
+    static final class Store {
+        int[] visits;
+        double[] totValue;
+        // first slot of the child block, or NONE before the first expansion
+        int[] firstChild;
+        // number of children visited so far
+        int[] nExpanded;
+        double[] lo, hi;
+        int n;
+
+        Store(int capacity) {
+            visits = new int[capacity];
+            totValue = new double[capacity];
+            firstChild = new int[capacity];
+            nExpanded = new int[capacity];
+            lo = new double[capacity];
+            hi = new double[capacity];
+        }
+
+        int alloc(int k) {
+            if (n + k > visits.length) {
+                int capacity = Math.max(n + k, visits.length * 2);
+                visits = Arrays.copyOf(visits, capacity);
+                totValue = Arrays.copyOf(totValue, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nExpanded = Arrays.copyOf(nExpanded, capacity);
+                lo = Arrays.copyOf(lo, capacity);
+                hi = Arrays.copyOf(hi, capacity);
+            }
+            int first = n;
+            for (int i = first; i < first + k; i++) {
+                visits[i] = 0;
+                totValue[i] = 0;
+                firstChild[i] = NONE;
+                nExpanded[i] = 0;
+                lo[i] = Double.MAX_VALUE;
+                hi[i] = -Double.MAX_VALUE;
+            }
+            n += k;
+            return first;
+        }
+
+        void copyNode(int from, Store to, int i) {
+            to.visits[i] = visits[from];
+            to.totValue[i] = totValue[from];
+            to.nExpanded[i] = nExpanded[from];
+            to.lo[i] = lo[from];
+            to.hi[i] = hi[from];
+        }
+
+        int capacity() {
+            return visits.length;
+        }
+    }
+
+    Store nodes;
+    Store spare;
+    int root;
+
+    // nodes on the current iteration's path, for the backup
+    int[] path;
+    // maps nodes of the spare store back to their original while rerooting
+    int[] origin;
+
+    public ArrayTree(Random rnd, int num_actions, Types.ACTIONS[] actions, int capacity) {
+        this.m_rnd = rnd;
+        this.num_actions = num_actions;
+        this.actions = actions;
+        nodes = new Store(capacity);
+        spare = new Store(capacity);
+        origin = new int[capacity];
+        path = new int[ROLLOUT_DEPTH + 2];
+        reset();
+    }
+
+    public void reset() {
+        nodes.n = 0;
+        root = nodes.alloc(1);
+    }
+
+    /**
+     * Makes the child for the given action the new root, keeping its
+     * statistics and everything below it; returns false and starts an
+     * empty tree if that child was never visited.
+     */
+    public boolean reroot(int action) {
+        int first = nodes.firstChild[root];
+        if (first == NONE || nodes.visits[first + action] == 0) {
+            reset();
+            return false;
+        }
+        spare.n = 0;
+        if (origin.length < nodes.capacity()) origin = new int[nodes.capacity()];
+        int newRoot = spare.alloc(1);
+        origin[newRoot] = first + action;
+        // breadth first, so the spare store is filled in the order it is read
+        for (int i = 0; i < spare.n; i++) {
+            int old = origin[i];
+            nodes.copyNode(old, spare, i);
+            int oldFirst = nodes.firstChild[old];
+            if (oldFirst != NONE) {
+                int block = spare.alloc(num_actions);
+                if (origin.length < spare.capacity()) origin = Arrays.copyOf(origin, spare.capacity());
+                spare.firstChild[i] = block;
+                for (int a = 0; a < num_actions; a++) origin[block + a] = oldFirst + a;
+            }
+        }
+        Store tmp = nodes;
+        nodes = spare;
+        spare = tmp;
+        root = newRoot;
+        return true;
+    }
+
+    public int size() {
+        return nodes.n;
+    }
+
+    /**
+     * Runs Agent.MCTS_ITERATIONS iterations if budget is null, otherwise
+     * as many as the (already started) budget allows.
+     */
+    public void mctsSearch(TimeBudget budget) {
+        if (path.length < ROLLOUT_DEPTH + 2) path = new int[ROLLOUT_DEPTH + 2];
+
+        int numIters = 0;
+
+        while(budget == null ? numIters < Agent.MCTS_ITERATIONS : budget.next()){
+
+            StateObservation state = rootState.copy();
+
+            int len = treePolicy(state);
+            double delta = rollOut(state, path[len - 1], len - 1);
+            backUp(len, delta);
+
+            numIters++;
+        }
+    }
+
+    /**
+     * Fills path with the nodes from the root to the selected node and
+     * returns its length; the depth of the selected node is length - 1.
+     */
+    int treePolicy(StateObservation state) {
+
+        int cur = root;
+        int depth = 0;
+        path[0] = cur;
+
+        while (!state.isGameOver() && depth < ROLLOUT_DEPTH)
+        {
+            if (nodes.nExpanded[cur] < num_actions) {
+                path[++depth] = expand(cur, state);
+                return depth + 1;
+            }
+            cur = uct(cur, state);
+            path[++depth] = cur;
+        }
+
+        return depth + 1;
+    }
+
+    int expand(int node, StateObservation state) {
+        if (nodes.firstChild[node] == NONE) {
+            int block = nodes.alloc(num_actions);
+            nodes.firstChild[node] = block;
+        }
+        int first = nodes.firstChild[node];
+
+        int bestAction = 0;
+        double bestValue = -1;
+
+        for (int i = 0; i < num_actions; i++) {
+            double x = m_rnd.nextDouble();
+            if (x > bestValue && nodes.visits[first + i] == 0) {
+                bestAction = i;
+                bestValue = x;
+            }
+        }
+
+        nodes.nExpanded[node]++;
+
+        //Roll the state
+        state.advance(actions[bestAction]);
+
+        return first + bestAction;
+    }
+
+    int uct(int node, StateObservation state) {
+
+        int first = nodes.firstChild[node];
+        double lo = nodes.lo[node], hi = nodes.hi[node];
+        double logVisits = Math.log(nodes.visits[node] + 1);
+
+        int selected = NONE;
+        double bestValue = -Double.MAX_VALUE;
+        for (int a = 0; a < num_actions; a++)
+        {
+            int child = first + a;
+            double childValue = nodes.totValue[child] / (nodes.visits[child] + this.epsilon);
+
+            childValue = Utils.normalise(childValue, lo, hi);
+
+            double uctValue = childValue +
+                    K * Math.sqrt(logVisits / (nodes.visits[child] + this.epsilon));
+
+            uctValue = Utils.noise(uctValue, this.epsilon, m_rnd.nextDouble());     //break ties randomly
+
+            if (uctValue > bestValue) {
+                selected = a;
+                bestValue = uctValue;
+            }
+        }
+        if (selected == NONE)
+        {
+            throw new RuntimeException("Warning! returning null: " + bestValue + " : " + num_actions + " " +
+            + lo + " " + hi);
+        }
+
+        //Roll the state:
+        state.advance(actions[selected]);
+
+        return first + selected;
+    }
+
+    double rollOut(StateObservation state, int node, int depth)
+    {
+        int thisDepth = depth;
+
+        double discount = 1.0;
+        double denom = 1.0;
+        double totValue = value(state);
+        while (!finishRollout(state,thisDepth)) {
+
+            int action = m_rnd.nextInt(num_actions);
+            state.advance(actions[action]);
+            thisDepth++;
+
+            discount *= SingleTreeNode.scoreDiscountFactor;
+
+            totValue += discount * value(state);
+
+            denom += discount;
+        }
+
+        double delta;
+        if (SingleTreeNode.useScoreDiscount) {
+            delta = totValue / denom;
+        } else {
+            delta = value(state);
+        }
+
+        SingleTreeNode.rollOutScores.add(delta);
+
+        if(delta < nodes.lo[node])
+            nodes.lo[node] = delta;
+        if(delta > nodes.hi[node])
+            nodes.hi[node] = delta;
+
+        return delta;
+    }
+
+    public double value(StateObservation a_gameState) {
+
+        boolean gameOver = a_gameState.isGameOver();
+        Types.WINNER win = a_gameState.getGameWinner();
+        double rawScore = a_gameState.getGameScore();
+
+        if(gameOver && win == Types.WINNER.PLAYER_LOSES)
+            rawScore += HUGE_NEGATIVE;
+
+        if(gameOver && win == Types.WINNER.PLAYER_WINS)
+            rawScore += HUGE_POSITIVE;
+
+        return rawScore;
+    }
+
+    boolean finishRollout(StateObservation rollerState, int depth)
+    {
+        if(depth >= ROLLOUT_DEPTH)      //rollout end condition.
+            return true;
+
+        if(rollerState.isGameOver())               //end of game
+            return true;
+
+        return false;
+    }
+
+    void backUp(int len, double result)
+    {
+        for (int i = 0; i < len; i++) {
+            int n = path[i];
+            nodes.visits[n]++;
+            nodes.totValue[n] += result;
+        }
+    }
+
+    public int bestAction()
+    {
+        int selected = -1;
+        double bestValue = -Double.MAX_VALUE;
+        int first = nodes.firstChild[root];
+
+        for (int a = 0; first != NONE && a < num_actions; a++) {
+            int child = first + a;
+            if (nodes.visits[child] > 0) {
+                double childValue = nodes.totValue[child] / (nodes.visits[child] + this.epsilon);
+                childValue = Utils.noise(childValue, this.epsilon, this.m_rnd.nextDouble());     //break ties randomly
+                if (childValue > bestValue) {
+                    bestValue = childValue;
+                    selected = a;
+                }
+            }
+        }
+
+        if (selected == -1)
+        {
+            System.out.println("Unexpected selection!");
+            selected = 0;
+        }
+
+        return selected;
+    }
+}
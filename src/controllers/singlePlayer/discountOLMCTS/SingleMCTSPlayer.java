@@ -3,6 +3,7 @@ package controllers.singlePlayer.discountOLMCTS;
 import core.game.StateObservation;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
+import utilities.TimeBudget;
 
 import java.util.Random;
 
@@ -29,6 +30,13 @@ public class SingleMCTSPlayer
     public int num_actions;
     public Types.ACTIONS[] actions;
 
+    /**
+     * If set, search until the time given by the ElapsedCpuTimer runs out
+     * (less timeMarginMillis) instead of for a fixed number of iterations.
+     */
+    public TimeBudget timeBudget;
+    public long timeMarginMillis = 2;
+
     public SingleMCTSPlayer(Random a_rnd, int num_actions, Types.ACTIONS[] actions)
     {
         this.num_actions = num_actions;
@@ -56,7 +64,10 @@ public class SingleMCTSPlayer
     public int run(ElapsedCpuTimer elapsedTimer)
     {
         //Do the search within the available time.
-        m_root.mctsSearch(elapsedTimer);
+        if (timeBudget != null) {
+            timeBudget.start(elapsedTimer.remainingTimeMillis() - timeMarginMillis);
+        }
+        m_root.mctsSearch(elapsedTimer, timeBudget);
 
         //Determine the best action to take and return it.
         // int action = m_root.mostVisitedAction();
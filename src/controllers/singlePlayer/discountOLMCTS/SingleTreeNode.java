@@ -5,6 +5,7 @@ import ontology.Types;
 import tools.ElapsedCpuTimer;
 import tools.Utils;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.Random;
 
@@ -29,6 +30,7 @@ public class SingleTreeNode
     public int num_actions;
     Types.ACTIONS[] actions;
 
+    // only updated by searches on the calling thread, see parallel below
     public static StatSummary rollOutScores = new StatSummary();
 
 
@@ -37,7 +39,28 @@ public class SingleTreeNode
     public int ROLLOUT_DEPTH = DEFAULT_ROLLOUT_DEPTH;
     public double K = Math.sqrt(2);
 
-    public static StateObservation rootState;
+    public StateObservation rootState;
+
+    // parallel: this tree is searched from a worker thread
+    // concurrent: several threads search this tree at once, so child creation
+    // and statistics updates are locked, selection applies virtual loss and
+    // random numbers come from the searching thread's own generator
+    // both are inherited from the parent
+    // a node's nVisits, totValue and inFlight are guarded by its parent's
+    // monitor (the root's by its own), not atomics on each field, since
+    // they must change together for uct to see a consistent child, and the
+    // serial path keeps its plain fields
+    public boolean parallel;
+    public boolean concurrent;
+    // number of iterations currently passing through this node
+    int inFlight;
+
+    // each pending iteration through a child counts as this many visits
+    // that scored the minimum, steering other threads elsewhere
+    public static double VIRTUAL_LOSS = 1.0;
+
+    // set by each worker thread of a tree-parallel search
+    public static final ThreadLocal<Random> WORKER_RANDOM = new ThreadLocal<>();
 
     public SingleTreeNode(Random rnd, int num_actions, Types.ACTIONS[] actions) {
         this(null, -1, rnd, num_actions, actions);
@@ -51,40 +74,58 @@ public class SingleTreeNode
         children = new SingleTreeNode[num_actions];
         totValue = 0.0;
         this.childIdx = childIdx;
-        if(parent != null)
+        if(parent != null) {
             m_depth = parent.m_depth+1;
+            parallel = parent.parallel;
+            concurrent = parent.concurrent;
+        }
         else
             m_depth = 0;
     }
 
+    Random rnd() {
+        if (concurrent) {
+            Random rnd = WORKER_RANDOM.get();
+            if (rnd != null) return rnd;
+        }
+        return m_rnd;
+    }
+
 
     public void mctsSearch(ElapsedCpuTimer elapsedTimer) {
+        mctsSearch(elapsedTimer, null);
+    }
 
-        double avgTimeTaken = 0;
-        double acumTimeTaken = 0;
-        long remaining = elapsedTimer.remainingTimeMillis();
-        int numIters = 0;
+    /**
+     * Runs Agent.MCTS_ITERATIONS iterations if budget is null, otherwise
+     * as many as the (already started) budget allows.
+     */
+    public void mctsSearch(ElapsedCpuTimer elapsedTimer, TimeBudget budget) {
 
-        int remainingLimit = 10;
-        // while(remaining > 2*avgTimeTaken && remaining > remainingLimit){
-        while(numIters < Agent.MCTS_ITERATIONS){
+        int numIters = 0;
 
-            StateObservation state = rootState.copy();
+        while(budget == null ? numIters < Agent.MCTS_ITERATIONS : budget.next()){
 
-            ElapsedCpuTimer elapsedTimerIteration = new ElapsedCpuTimer();
-            SingleTreeNode selected = treePolicy(state);
-            double delta = selected.rollOut(state);
-            backUp(selected, delta);
+            iterate(rootState);
 
             numIters++;
-            acumTimeTaken += (elapsedTimerIteration.elapsedMillis()) ;
-            //System.out.println(elapsedTimerIteration.elapsedMillis() + " --> " + acumTimeTaken + " (" + remaining + ")");
-            avgTimeTaken  = acumTimeTaken/numIters;
-            remaining = elapsedTimer.remainingTimeMillis();
         }
         // System.out.println("Iterations: " + numIters);
     }
 
+    /**
+     * One select-expand-rollout-backup pass starting from a copy of the
+     * given state, which in a tree-parallel search is the calling thread's
+     * own copy of the root state.
+     */
+    void iterate(StateObservation from) {
+        StateObservation state = from.copy();
+
+        SingleTreeNode selected = treePolicy(state);
+        double delta = selected.rollOut(state);
+        backUp(selected, delta);
+    }
+
     public SingleTreeNode treePolicy(StateObservation state) {
 
         SingleTreeNode cur = this;
@@ -92,12 +133,12 @@ public class SingleTreeNode
         while (!state.isGameOver() && cur.m_depth < ROLLOUT_DEPTH)
         {
             if (cur.notFullyExpanded()) {
-                return cur.expand(state);
-
-            } else {
-                SingleTreeNode next = cur.uct(state);
-                cur = next;
+                SingleTreeNode tn = cur.expand(state);
+                // null only when another thread expanded the last child first
+                if (tn != null) return tn;
             }
+            SingleTreeNode next = cur.uct(state);
+            cur = next;
         }
 
         return cur;
@@ -105,6 +146,7 @@ public class SingleTreeNode
 
 
     public SingleTreeNode expand(StateObservation state) {
+        if (concurrent) return expandConcurrent(state);
 
         int bestAction = 0;
         double bestValue = -1;
@@ -126,10 +168,62 @@ public class SingleTreeNode
 
     }
 
+    private SingleTreeNode expandConcurrent(StateObservation state) {
+
+        SingleTreeNode tn;
+        synchronized (this) {
+            Random rnd = rnd();
+            int bestAction = -1;
+            double bestValue = -1;
+
+            for (int i = 0; i < children.length; i++) {
+                double x = rnd.nextDouble();
+                if (x > bestValue && children[i] == null) {
+                    bestAction = i;
+                    bestValue = x;
+                }
+            }
+            if (bestAction < 0) return null;
+
+            tn = new SingleTreeNode(this,bestAction,this.m_rnd,num_actions, actions);
+            tn.inFlight = 1;
+            children[bestAction] = tn;
+        }
+
+        //Roll the state
+        state.advance(actions[tn.childIdx]);
+        return tn;
+    }
+
     public SingleTreeNode uct(StateObservation state) {
 
+        SingleTreeNode selected = concurrent ? selectChildLocked(visitsLocked()) : selectChild(nVisits);
+
+        //Roll the state:
+        state.advance(actions[selected.childIdx]);
+
+        return selected;
+    }
+
+    // this node's count is written under its parent's monitor, so it is read
+    // there, before selectChildLocked takes this node's for the children's
+    private double visitsLocked() {
+        synchronized (parent != null ? parent : this) {
+            return nVisits;
+        }
+    }
+
+    private synchronized SingleTreeNode selectChildLocked(double nodeVisits) {
+        SingleTreeNode selected = selectChild(nodeVisits);
+        selected.inFlight++;
+        return selected;
+    }
+
+    private SingleTreeNode selectChild(double nodeVisits) {
+
         SingleTreeNode selected = null;
         double bestValue = -Double.MAX_VALUE;
+        Random rnd = rnd();
         for (SingleTreeNode child : this.children)
         {
             double hvVal = child.totValue;
@@ -138,10 +232,17 @@ public class SingleTreeNode
             childValue = Utils.normalise(childValue, bounds[0], bounds[1]);
             //System.out.println("norm child value: " + childValue);
 
+            double visits = child.nVisits;
+            if (child.inFlight > 0) {
+                double virtualVisits = child.inFlight * VIRTUAL_LOSS;
+                childValue *= visits / (visits + virtualVisits);
+                visits += virtualVisits;
+            }
+
             double uctValue = childValue +
-                    K * Math.sqrt(Math.log(this.nVisits + 1) / (child.nVisits + this.epsilon));
+                    K * Math.sqrt(Math.log(nodeVisits + 1) / (visits + this.epsilon));
 
-            uctValue = Utils.noise(uctValue, this.epsilon, this.m_rnd.nextDouble());     //break ties randomly
+            uctValue = Utils.noise(uctValue, this.epsilon, rnd.nextDouble());     //break ties randomly
 
             // small sampleRandom numbers: break ties in unexpanded nodes
             if (uctValue > bestValue) {
@@ -155,9 +256,6 @@ public class SingleTreeNode
             + bounds[0] + " " + bounds[1]);
         }
 
-        //Roll the state:
-        state.advance(actions[selected.childIdx]);
-
         return selected;
     }
 
@@ -169,9 +267,10 @@ public class SingleTreeNode
         double discount = 1.0;
         double denom = 1.0;
         double totValue = value(state);
+        Random rnd = rnd();
         while (!finishRollout(state,thisDepth)) {
 
-            int action = m_rnd.nextInt(num_actions);
+            int action = rnd.nextInt(num_actions);
             state.advance(actions[action]);
             thisDepth++;
 
@@ -189,18 +288,28 @@ public class SingleTreeNode
             delta = value(state);
         }
 
-        rollOutScores.add(delta);
+        if (!parallel) rollOutScores.add(delta);
 
-        if(delta < bounds[0])
-            bounds[0] = delta;
-        if(delta > bounds[1])
-            bounds[1] = delta;
+        if (concurrent) {
+            synchronized (this) {
+                updateBounds(delta);
+            }
+        } else {
+            updateBounds(delta);
+        }
 
         //double normDelta = Utils.normalise(delta ,lastBounds[0], lastBounds[1]);
 
         return delta;
     }
 
+    private void updateBounds(double delta) {
+        if(delta < bounds[0])
+            bounds[0] = delta;
+        if(delta > bounds[1])
+            bounds[1] = delta;
+    }
+
     public double value(StateObservation a_gameState) {
 
         boolean gameOver = a_gameState.isGameOver();
@@ -232,8 +341,17 @@ public class SingleTreeNode
         SingleTreeNode n = node;
         while(n != null)
         {
-            n.nVisits++;
-            n.totValue += result;
+            if (n.concurrent) {
+                // child statistics are read under the parent's lock in uct
+                synchronized (n.parent != null ? n.parent : n) {
+                    n.nVisits++;
+                    n.totValue += result;
+                    if (n.parent != null) n.inFlight--;
+                }
+            } else {
+                n.nVisits++;
+                n.totValue += result;
+            }
             n = n.parent;
         }
     }
@@ -5,13 +5,17 @@ import core.player.AbstractPlayer;
 import evodef.EvoAlg;
 import evodef.GameActionSpaceAdapter;
 import evodef.SearchSpaceUtil;
+import ggi.agents.TranspositionTable;
 import gvglink.SpaceBattleLinkState;
 import ontology.Types;
 import tools.ElapsedCpuTimer;
+import utilities.DaemonPool;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Future;
 
 /**
  *
@@ -84,29 +88,44 @@ public class Agent extends AbstractPlayer {
         // we'll set up a game adapter and run the algorithm independently each
         // time at least to being with
 
+        if (engines == null) initEngines();
+        // a fresh salt per tick keeps memo entries from earlier roots from matching
+        long salt = random.nextLong();
 
-        StateObservation obs = stateObs.copy();
-
-        // Types.ACTIONS[] moveSeq = new Types.ACTIONS[maxRolloutLength];
-
-        bestRollout = new Types.ACTIONS[maxNestingDepth][maxRolloutLength];
-        lengthBestRollout = new int[maxNestingDepth];
-        scoreBestRollout = new double[maxNestingDepth];
+        // each engine gets its own copy of the root, made here, and the
+        // searches only copy from those, so no state is copied by two
+        // threads at once
+        StateObservation[] states = new StateObservation[num_actions];
+        for (int i = 0; i < num_actions; i++) {
+            states[i] = stateObs.copy();
+        }
+        double[] scores = new double[num_actions];
+        // thread t searches actions t, t + nThreads, ...
+        int nThreads = Math.max(1, Math.min(N_THREADS, num_actions));
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < nThreads; t++) {
+            int first = t;
+            Runnable task = () -> {
+                for (int i = first; i < num_actions; i += nThreads) {
+                    scores[i] = engines[i].search(states[i], i, nestDepth, salt);
+                }
+            };
+            if (nThreads == 1) task.run();
+            else futures.add(DaemonPool.shared().submit(task));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                throw new RuntimeException("Nested search failed", e);
+            }
+        }
 
-        //nested(obs, nestDepth, moveSeq, 0);
         double bestScore = Double.NEGATIVE_INFINITY;
         Types.ACTIONS bestAction = actions [0];
         for (int i = 0; i < num_actions; i++) {
-            StateObservation state = obs.copy();
-            Types.ACTIONS[] moveSeqCopy = new Types.ACTIONS[maxRolloutLength];
-            int nActionsPlayed = 0;
-            state.advance(actions[i]);
-            moveSeqCopy[nActionsPlayed] = actions[i];
-            nActionsPlayed++;
-            nested(state, nestDepth, moveSeqCopy, nActionsPlayed);
-            double score = state.getGameScore();
-            if (score > bestScore) {
-                bestScore = score;
+            if (scores[i] > bestScore) {
+                bestScore = scores[i];
                 bestAction = actions[i];
             }
         }
@@ -118,78 +137,24 @@ public class Agent extends AbstractPlayer {
     public static int maxNestingDepth = 10;
     public static int maxRolloutLength = 10;
 
-    int[] lengthBestRollout;
-    double[] scoreBestRollout;
-    Types.ACTIONS[][] bestRollout;
-
-    // double bestScoreNested = Double.NEGATIVE_INFINITY;
-    // Board bestBoard;
+    // root actions are searched on this many threads, from DaemonPool.shared()
+    public static int N_THREADS = 1;
+    // remember the score of every complete move sequence within a tick;
+    // only valid for deterministic games
+    public static boolean USE_MEMO = false;
+    public static int MEMO_LOG2_BUCKETS = 14;
 
+    // one engine per root action, each with its own buffers and random stream
+    NestedSearch[] engines;
 
     static Random random = new Random();
-    void playout(StateObservation stateObservation, Types.ACTIONS[] moveSeq, int nActionsPlayed) {
-        // Types.ACTIONS[] moveSeq = new Types.ACTIONS[maxRolloutLength];
-        while (!stateObservation.isGameOver() && nActionsPlayed < maxRolloutLength) {
-            int move = random.nextInt(num_actions);
-            stateObservation.advance(actions[move]);
-            moveSeq[nActionsPlayed] = actions[move];
-            nActionsPlayed++;
-        }
-        // System.out.println("Rollout score: " + stateObservation.getGameScore());
-    }
-
-    void nested(StateObservation stateObservation, int nestingLevel, Types.ACTIONS[] moveSeq, int nActionsPlayed) {
-        int nbMoves = 0;
-        // Types.ACTIONS[] moves = new Types.ACTIONS[maxLegalMoves];
-
-        lengthBestRollout[nestingLevel] = -1;
-        scoreBestRollout[nestingLevel] = Double.NEGATIVE_INFINITY;
-        float res;
-        while (true) {
-            if (stateObservation.isGameOver())
-                return;
-            if (nActionsPlayed >= maxRolloutLength)
-                return;
-            //return board.score ();
-            for (int i = 0; i < num_actions; i++) {
-                StateObservation state = stateObservation.copy();
-                Types.ACTIONS[] moveSeqCopy = new Types.ACTIONS[maxRolloutLength];
-                int nActionsCopy = nActionsPlayed;
-                for (int j = 0; j < nActionsPlayed; j++)
-                    moveSeqCopy [j] = moveSeq [j];
-                if (nestingLevel == 1) {
-                    state.advance(actions[i]);
-                    moveSeqCopy [nActionsCopy] = actions [i];
-                    nActionsCopy++;
-                    playout(state, moveSeqCopy, nActionsCopy);
-                } else {
-                    state.advance(actions[i]);
-                    moveSeqCopy [nActionsCopy] = actions [i];
-                    nActionsCopy++;
-                    nested(state, nestingLevel - 1, moveSeqCopy, nActionsCopy);
-                }
-                double score = state.getGameScore();
-                // System.out.println("Move Seq Copy: " + Arrays.toString(moveSeqCopy));
-                if (score > scoreBestRollout[nestingLevel]) {
-                    //System.out.println ("level " + nestingLevel + "score " + score);
-                    scoreBestRollout[nestingLevel] = score;
-                    lengthBestRollout[nestingLevel] = maxRolloutLength;
-                    for (int j = 0; j < maxRolloutLength; j++)
-                       bestRollout[nestingLevel] [j] = moveSeqCopy [j];
-                } else {
-                    // this was to find a bug
-                    // System.out.println("score comparison: " + score + " : " + scoreBestRollout[nestingLevel] );
-                }
-            }
-            // System.out.println(nestingLevel + " : " + nActionsPlayed);
 
-
-//            for (Types.ACTIONS[] a : bestRollout) {
-//                System.out.println(Arrays.toString(a));
-//            }
-            stateObservation.advance(bestRollout[nestingLevel][nActionsPlayed]);
-            moveSeq[nActionsPlayed] = bestRollout[nestingLevel][nActionsPlayed];
-            nActionsPlayed++;
+    void initEngines() {
+        engines = new NestedSearch[num_actions];
+        for (int i = 0; i < num_actions; i++) {
+            engines[i] = new NestedSearch(actions, Math.max(nestDepth, maxNestingDepth), maxRolloutLength,
+                    new Random(random.nextLong()));
+            if (USE_MEMO) engines[i].setMemo(new TranspositionTable(MEMO_LOG2_BUCKETS));
         }
     }
 }
@@ -0,0 +1,143 @@
+package controllers.singlePlayer.nestedMC;
+
+import core.game.StateObservation;
+import ggi.agents.TranspositionTable;
+import ontology.Types;
+
+import java.util.Random;
+
+/**
+ * Nested Monte Carlo search engine for one root action.
+ *
+ * All the buffers are allocated once: a single move buffer holds the
+ * sequence currently being played from the root (every nesting level
+ * writes only beyond the prefix it was given), and each level keeps the
+ * best sequence it has found so far.  Moves are stored as action indices.
+ * Each engine has its own Random, so engines for different root actions
+ * can run on different threads and give the same results however they
+ * are scheduled.
+ *
+ * At level 1 the random playout moves are drawn before the state is
+ * touched.  With a memo set, the score reached by each complete move
+ * sequence is stored under a hash of the sequence, and a sequence that
+ * has been played before is scored from the memo without copying or
+ * advancing the state.  This is only valid for deterministic games.
+ */
+public class NestedSearch {
+
+    Types.ACTIONS[] actions;
+    int num_actions;
+    int maxRolloutLength;
+    Random random;
+
+    // moves played from the root, and the hash of each prefix:
+    // prefixHash[k] covers moves[0 .. k-1]
+    int[] moves;
+    long[] prefixHash;
+
+    int[][] bestRollout;
+    double[] scoreBestRollout;
+
+    TranspositionTable memo;
+
+    public int nPlayouts, nMemoHits;
+
+    public NestedSearch(Types.ACTIONS[] actions, int maxNestingDepth, int maxRolloutLength, Random random) {
+        this.actions = actions;
+        this.num_actions = actions.length;
+        this.maxRolloutLength = maxRolloutLength;
+        this.random = random;
+        moves = new int[maxRolloutLength];
+        prefixHash = new long[maxRolloutLength + 1];
+        bestRollout = new int[maxNestingDepth + 1][maxRolloutLength];
+        scoreBestRollout = new double[maxNestingDepth + 1];
+    }
+
+    public NestedSearch setMemo(TranspositionTable memo) {
+        this.memo = memo;
+        return this;
+    }
+
+    /**
+     * Plays the root action on the state, then runs a nested search of
+     * the given level from there, leaving the state at the end of the
+     * best sequence found; returns the score there.  The salt identifies
+     * the root state for the memo, and must change whenever it does.
+     */
+    public double search(StateObservation state, int action, int nestingLevel, long salt) {
+        prefixHash[0] = salt;
+        play(state, 0, action);
+        nested(state, nestingLevel, 1);
+        return state.getGameScore();
+    }
+
+    static long mix(long h, int action) {
+        h = (h ^ (action + 1)) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 31);
+    }
+
+    private void play(StateObservation state, int k, int action) {
+        state.advance(actions[action]);
+        moves[k] = action;
+        prefixHash[k + 1] = mix(prefixHash[k], action);
+    }
+
+    void nested(StateObservation stateObservation, int nestingLevel, int nActionsPlayed) {
+
+        scoreBestRollout[nestingLevel] = Double.NEGATIVE_INFINITY;
+        while (true) {
+            if (stateObservation.isGameOver())
+                return;
+            if (nActionsPlayed >= maxRolloutLength)
+                return;
+            for (int i = 0; i < num_actions; i++) {
+                double score;
+                if (nestingLevel == 1) {
+                    score = playout(stateObservation, nActionsPlayed, i);
+                } else {
+                    StateObservation state = stateObservation.copy();
+                    play(state, nActionsPlayed, i);
+                    nested(state, nestingLevel - 1, nActionsPlayed + 1);
+                    score = state.getGameScore();
+                }
+                if (score > scoreBestRollout[nestingLevel]) {
+                    scoreBestRollout[nestingLevel] = score;
+                    System.arraycopy(moves, 0, bestRollout[nestingLevel], 0, maxRolloutLength);
+                }
+            }
+            play(stateObservation, nActionsPlayed, bestRollout[nestingLevel][nActionsPlayed]);
+            nActionsPlayed++;
+        }
+    }
+
+    /**
+     * Random playout after playing action i at position n; the moves are
+     * left in the move buffer and the score of the final state returned.
+     */
+    double playout(StateObservation stateObservation, int n, int i) {
+        moves[n] = i;
+        prefixHash[n + 1] = mix(prefixHash[n], i);
+        for (int k = n + 1; k < maxRolloutLength; k++) {
+            moves[k] = random.nextInt(num_actions);
+            prefixHash[k + 1] = mix(prefixHash[k], moves[k]);
+        }
+        long key = prefixHash[maxRolloutLength];
+        if (memo != null) {
+            int slot = memo.find(key);
+            if (slot >= 0) {
+                nMemoHits++;
+                return memo.mean(slot);
+            }
+        }
+
+        StateObservation state = stateObservation.copy();
+        state.advance(actions[i]);
+        for (int k = n + 1; k < maxRolloutLength && !state.isGameOver(); k++) {
+            state.advance(actions[moves[k]]);
+        }
+        nPlayouts++;
+        double score = state.getGameScore();
+        if (memo != null) memo.add(key, score);
+        return score;
+    }
+}
@@ -5,6 +5,7 @@ import evodef.BanditLandscapeModel;
 import ntuple.GeneArrayMeanModel;
 import ntuple.ScoredVec;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,7 +36,9 @@ public class RankCorrelationEDA implements EvoAlg {
     public int historyLength = 50;
     ArrayList<ScoredVec> history;
 
-    int nSamples = 1;
+    Resampler resampler = Resampler.fixed(1);
+    // the best point sampled so far, which a racing resampler races each point against
+    Resampler.Incumbent incumbent;
 
     boolean verbose = false;
 
@@ -58,6 +61,13 @@ public class RankCorrelationEDA implements EvoAlg {
         return this;
     }
 
+    TimeBudget timeBudget;
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int nEvals) {
         this.evaluator = evaluator;
@@ -70,6 +80,7 @@ public class RankCorrelationEDA implements EvoAlg {
         geneArrayModel = new GeneArrayMeanModel(searchSpace);
 
         int nSteps = 0;
+        incumbent = new Resampler.Incumbent();
         Long endTime = null;
         if (timeLimit != null) {
             // endTime = timeLimit + System.currentTimeMillis();
@@ -77,14 +88,15 @@ public class RankCorrelationEDA implements EvoAlg {
         }
 //        while (evaluator.nEvals() < nEvals && (endTime == null || System.currentTimeMillis() < endTime)) {
 
-        while (evaluator.nEvals() < nEvals && (endTime == null || System.nanoTime() / 1000000 < endTime)) {
+        while (evaluator.nEvals() < nEvals && (endTime == null || System.nanoTime() / 1000000 < endTime)
+                && (timeBudget == null || timeBudget.next())) {
 
             int prevEvals = evaluator.nEvals();
 
             // each time around evaluate a single new individual: x
             // but occasionally have the possibility of sampling the best guess so far
             int[] x = geneArrayModel.generate();
-            double f = fitness(evaluator, x, nSamples).mean();
+            double f = fitness(evaluator, x).mean();
 
             ScoredVec scoredVec = new ScoredVec(x, f);
 
@@ -158,17 +170,16 @@ public class RankCorrelationEDA implements EvoAlg {
     @Override
     public void setSamplingRate(int samplingRate) {
 
-        nSamples = samplingRate;
+        resampler = Resampler.fixed(samplingRate);
     }
 
-    static StatSummary fitness(SolutionEvaluator evaluator, int[] sol, int nSamples) {
-        StatSummary ss = new StatSummary();
-        for (int i=0; i<nSamples; i++) {
-            double fitness = evaluator.evaluate(sol);
-            ss.add(fitness);
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
+    }
 
-        }
-        return ss;
+    StatSummary fitness(SolutionEvaluator evaluator, int[] sol) {
+        return resampler.race(evaluator, sol, incumbent);
     }
 
 
@@ -0,0 +1,177 @@
+package evodef;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wraps a deterministic evaluator, so that a solution evaluated before is
+ * answered from a cache instead of evaluated again.  The cache holds at
+ * most capacity solutions, dropping the least recently used, and is kept
+ * across calls to reset, so it should only wrap an evaluator that always
+ * gives a solution the same fitness; setCaching(false) passes every call
+ * through, for noisy evaluators.
+ *
+ * With countHits set, as by default, a cache hit uses up an evaluation
+ * of the budget like any other, so runs are comparable with uncached
+ * ones; without it nEvals counts only the real evaluations, and the
+ * budget buys that many distinct solutions.  Either way the logger logs
+ * what nEvals counts.
+ *
+ * Every EvoAlg loops until nEvals reaches its budget, so without countHits
+ * a search that only proposes solutions it has seen, such as a hill
+ * climber stuck on an optimum or any search of a small space, would never
+ * end.  So once maxUncountedHits hits come in a row, further hits count
+ * as evaluations, until the next miss.
+ */
+public class CachedEvaluator implements SolutionEvaluator {
+
+    SolutionEvaluator evaluator;
+    int capacity;
+    boolean caching = true;
+    boolean countHits = true;
+    int maxUncountedHits = 1000;
+    // hits since the last miss
+    int hitRun;
+
+    Map<Object, Double> cache;
+    // the radix of each dimension when a solution packs into a long, else null
+    long[] radix;
+
+    EvolutionLogger logger = new EvolutionLogger();
+    boolean optimalFound = false;
+
+    public int nHits, nMisses;
+
+    public CachedEvaluator(SolutionEvaluator evaluator, int capacity) {
+        this.evaluator = evaluator;
+        this.capacity = capacity;
+        cache = new LinkedHashMap<Object, Double>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Object, Double> eldest) {
+                return size() > CachedEvaluator.this.capacity;
+            }
+        };
+        radix = packing(evaluator.searchSpace());
+    }
+
+    public CachedEvaluator setCaching(boolean caching) {
+        this.caching = caching;
+        return this;
+    }
+
+    public CachedEvaluator setCountHits(boolean countHits) {
+        this.countHits = countHits;
+        return this;
+    }
+
+    public CachedEvaluator setMaxUncountedHits(int maxUncountedHits) {
+        this.maxUncountedHits = maxUncountedHits;
+        return this;
+    }
+
+    public void clearCache() {
+        cache.clear();
+    }
+
+    @Override
+    public double evaluate(int[] solution) {
+        if (!caching) return log(evaluator.evaluate(solution), solution);
+        Object key = key(solution);
+        Double fitness = cache.get(key);
+        if (fitness != null) {
+            nHits++;
+            if (countHits || ++hitRun > maxUncountedHits) log(fitness, solution);
+            return fitness;
+        }
+        nMisses++;
+        hitRun = 0;
+        fitness = evaluator.evaluate(solution);
+        cache.put(key, fitness);
+        return log(fitness, solution);
+    }
+
+    private double log(double fitness, int[] solution) {
+        Double optimal = evaluator.optimalIfKnown();
+        boolean isOptimal = optimal != null && fitness >= optimal;
+        if (isOptimal) optimalFound = true;
+        logger.log(fitness, solution, isOptimal);
+        return fitness;
+    }
+
+    // a solution is packed into one long when the whole space numbers
+    // no more than Long.MAX_VALUE points
+    private static long[] packing(SearchSpace searchSpace) {
+        long[] radix = new long[searchSpace.nDims()];
+        long size = 1;
+        for (int i = 0; i < radix.length; i++) {
+            radix[i] = searchSpace.nValues(i);
+            if (radix[i] > 0 && size > Long.MAX_VALUE / radix[i]) return null;
+            size *= radix[i];
+        }
+        return radix;
+    }
+
+    private Object key(int[] solution) {
+        if (radix == null || solution.length != radix.length) return new ArrayKey(solution);
+        long key = 0;
+        for (int i = 0; i < solution.length; i++) {
+            key = key * radix[i] + solution[i];
+        }
+        return key;
+    }
+
+    static class ArrayKey {
+        int[] x;
+        int hash;
+
+        ArrayKey(int[] x) {
+            this.x = x.clone();
+            hash = Arrays.hashCode(x);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof ArrayKey && hash == ((ArrayKey) o).hash && Arrays.equals(x, ((ArrayKey) o).x);
+        }
+    }
+
+    @Override
+    public void reset() {
+        evaluator.reset();
+        logger.reset();
+        optimalFound = false;
+        hitRun = 0;
+    }
+
+    @Override
+    public boolean optimalFound() {
+        return optimalFound;
+    }
+
+    @Override
+    public SearchSpace searchSpace() {
+        return evaluator.searchSpace();
+    }
+
+    @Override
+    public int nEvals() {
+        return logger.nEvals();
+    }
+
+    @Override
+    public EvolutionLogger logger() {
+        return logger;
+    }
+
+    @Override
+    public Double optimalIfKnown() {
+        return evaluator.optimalIfKnown();
+    }
+
+    public String toString() {
+        return "Cached " + evaluator + ", hits: " + nHits + ", misses: " + nMisses;
+    }
+}
@@ -48,7 +48,8 @@ public class DefaultMutator implements Mutator {
 
     // this will be set each time a DefaultMutator is created
     public double pointProb;
-    static Random random = new Random();
+    static Random sharedRandom = new Random();
+    Random random = sharedRandom;
 
     public boolean totalRandomChaosMutation = false;
     public static double defaultPointProb = 1.0;
@@ -95,7 +96,7 @@ public class DefaultMutator implements Mutator {
             return swapMutation(v);
         }
         if (totalRandomChaosMutation) {
-            return SearchSpaceUtil.randomPoint(searchSpace);
+            return SearchSpaceUtil.randomPoint(searchSpace, random);
         }
         // otherwise do a proper mutation
         int n = v.length;
@@ -153,6 +154,12 @@ public class DefaultMutator implements Mutator {
         return this;
     }
 
+    // a Random of its own, for repeatable runs; by default all share one
+    public DefaultMutator setRandom(Random random) {
+        this.random = random;
+        return this;
+    }
+
     @Override
     public DefaultMutator setSwap(boolean swapMutation) {
         this.swapMutation = swapMutation;
@@ -0,0 +1,329 @@
+package evodef;
+
+import ntuple.VariSpace;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates solutions in worker JVMs on this machine (see FarmWorker),
+ * each with its own evaluator, so that evaluators that keep state in
+ * static fields can still be run in parallel, one per process.
+ *
+ * The farm is itself a SolutionEvaluator, so any EvoAlg can use it, one
+ * evaluation at a time.  Algorithms that have several solutions to score
+ * at once, such as SimpleGA with its population, use evaluateAll, which
+ * runs them in parallel; submit returns as soon as the solution is queued.
+ * Each worker takes the next job from the queue as soon as it has
+ * finished the last one.  Every result is logged, however it was asked
+ * for, so nEvals counts them all.
+ *
+ * A worker that closes its connection, or has sent no heartbeat for
+ * missedHeartbeats intervals, is killed and replaced, and its job queued
+ * again, at most maxRetries times.  Heartbeats come from their own thread,
+ * so they only show that the worker's JVM is alive; a job that takes more
+ * than jobTimeoutMillis, as when the evaluator hangs, is treated the same
+ * way.  An exception thrown by the evaluator fails the job without a
+ * retry.  Call close() when done.
+ */
+public class EvaluationFarm implements SolutionEvaluator {
+
+    public static int heartbeatMillis = 500;
+    public static int missedHeartbeats = 6;
+    public static int maxRetries = 2;
+    // the longest one evaluation may take, or 0 for no limit
+    public static long jobTimeoutMillis = 600000;
+    // time allowed for a worker JVM to start and connect
+    public static int startupMillis = 30000;
+
+    static class Job {
+        int id;
+        int[] solution;
+        int attempts;
+        CompletableFuture<Double> result = new CompletableFuture<>();
+    }
+
+    String evaluatorClass;
+    LinkedBlockingDeque<Job> queue = new LinkedBlockingDeque<>();
+    List<Worker> workers = new ArrayList<>();
+    volatile boolean closed = false;
+
+    int nStarted = 0;
+    AtomicInteger nextId = new AtomicInteger();
+    AtomicInteger nLive = new AtomicInteger();
+    public AtomicInteger nRestarts = new AtomicInteger();
+
+    SearchSpace searchSpace;
+    Double optimal;
+    boolean optimalFound = false;
+    EvolutionLogger logger = new EvolutionLogger();
+
+    /**
+     * Starts nWorkers worker JVMs, with the classpath of this one, that
+     * make their evaluators from the given class (see FarmWorker).
+     */
+    public EvaluationFarm(String evaluatorClass, int nWorkers) {
+        this.evaluatorClass = evaluatorClass;
+        for (int i = 0; i < nWorkers; i++) {
+            startWorker();
+        }
+    }
+
+    public EvaluationFarm(Class<?> evaluatorClass, int nWorkers) {
+        this(evaluatorClass.getName(), nWorkers);
+    }
+
+    private void startWorker() {
+        Worker worker = new Worker();
+        try {
+            worker.launch();
+        } catch (IOException e) {
+            worker.kill();
+            throw new RuntimeException("Could not start a farm worker", e);
+        }
+        int n;
+        synchronized (workers) {
+            workers.add(worker);
+            n = ++nStarted;
+        }
+        nLive.incrementAndGet();
+        Thread thread = new Thread(worker, "EvaluationFarm-" + n);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a solution for evaluation; the result is logged when it
+     * arrives, before the returned future completes.
+     */
+    public CompletableFuture<Double> submit(int[] solution) {
+        int[] copy = solution.clone();
+        return queue(copy).thenApply(fitness -> {
+            log(fitness, copy);
+            return fitness;
+        });
+    }
+
+    private CompletableFuture<Double> queue(int[] solution) {
+        if (closed) throw new IllegalStateException("Farm is closed");
+        Job job = new Job();
+        job.id = nextId.incrementAndGet();
+        job.solution = solution.clone();
+        queue.add(job);
+        return job.result;
+    }
+
+    /**
+     * Evaluates the solutions in parallel, logging the results in order.
+     */
+    @Override
+    public double[] evaluateAll(List<int[]> solutions) {
+        List<CompletableFuture<Double>> results = new ArrayList<>();
+        for (int[] solution : solutions) {
+            results.add(queue(solution));
+        }
+        double[] fitness = new double[solutions.size()];
+        for (int i = 0; i < fitness.length; i++) {
+            fitness[i] = results.get(i).join();
+            log(fitness[i], solutions.get(i));
+        }
+        return fitness;
+    }
+
+    @Override
+    public double evaluate(int[] solution) {
+        double fitness = queue(solution).join();
+        log(fitness, solution);
+        return fitness;
+    }
+
+    // synchronized, since submit logs on the worker threads
+    private synchronized void log(double fitness, int[] solution) {
+        boolean isOptimal = optimal != null && fitness >= optimal;
+        if (isOptimal) optimalFound = true;
+        logger.log(fitness, solution, isOptimal);
+    }
+
+    public void close() {
+        closed = true;
+        List<Worker> live;
+        synchronized (workers) {
+            live = new ArrayList<>(workers);
+        }
+        for (Worker worker : live) worker.kill();
+        Job job;
+        while ((job = queue.poll()) != null) {
+            job.result.completeExceptionally(new IllegalStateException("Farm closed"));
+        }
+    }
+
+    @Override
+    public void reset() {
+        logger.reset();
+        optimalFound = false;
+    }
+
+    @Override
+    public boolean optimalFound() {
+        return optimalFound;
+    }
+
+    @Override
+    public SearchSpace searchSpace() {
+        return searchSpace;
+    }
+
+    @Override
+    public int nEvals() {
+        return logger.nEvals();
+    }
+
+    @Override
+    public EvolutionLogger logger() {
+        return logger;
+    }
+
+    @Override
+    public Double optimalIfKnown() {
+        return optimal;
+    }
+
+    class Worker implements Runnable {
+        Process process;
+        Socket socket;
+        DataInputStream in;
+        DataOutputStream out;
+
+        void launch() throws IOException {
+            try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+                server.setSoTimeout(startupMillis);
+                String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+                ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        FarmWorker.class.getName(), "" + server.getLocalPort(), evaluatorClass, "" + heartbeatMillis);
+                builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+                builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+                process = builder.start();
+                socket = server.accept();
+            }
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(heartbeatMillis * missedHeartbeats);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            if (in.readByte() != FarmWorker.HELLO) throw new IOException("No HELLO from worker");
+            int[] nValues = new int[in.readInt()];
+            for (int i = 0; i < nValues.length; i++) {
+                nValues[i] = in.readInt();
+            }
+            double best = in.readDouble();
+            synchronized (EvaluationFarm.this) {
+                if (searchSpace == null) {
+                    searchSpace = new VariSpace(nValues);
+                    optimal = Double.isNaN(best) ? null : best;
+                }
+            }
+        }
+
+        public void run() {
+            Job job = null;
+            try {
+                while (!closed) {
+                    job = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    if (job == null) continue;
+                    out.writeByte(FarmWorker.EVALUATE);
+                    out.writeInt(job.id);
+                    out.writeInt(job.solution.length);
+                    for (int x : job.solution) out.writeInt(x);
+                    out.flush();
+                    awaitResult(job);
+                    job = null;
+                }
+            } catch (InterruptedException e) {
+                // closing down
+            } catch (IOException e) {
+                if (closed) {
+                    // close() only fails the jobs still queued, not this one
+                    if (job != null) job.result.completeExceptionally(new IllegalStateException("Farm closed"));
+                } else {
+                    if (job != null) retry(job, e);
+                    replace();
+                }
+            } finally {
+                kill();
+            }
+        }
+
+        private void awaitResult(Job job) throws IOException {
+            long deadline = System.currentTimeMillis() + jobTimeoutMillis;
+            while (true) {
+                byte type = in.readByte();
+                if (type == FarmWorker.HEARTBEAT) {
+                    if (jobTimeoutMillis > 0 && System.currentTimeMillis() > deadline)
+                        throw new IOException("Job " + job.id + " timed out after " + jobTimeoutMillis + " ms");
+                    continue;
+                }
+                int id = in.readInt();
+                if (type == FarmWorker.RESULT) {
+                    double fitness = in.readDouble();
+                    if (id == job.id) {
+                        job.result.complete(fitness);
+                        return;
+                    }
+                } else if (type == FarmWorker.ERROR) {
+                    String message = in.readUTF();
+                    if (id == job.id) {
+                        job.result.completeExceptionally(new RuntimeException("Evaluation failed in worker: " + message));
+                        return;
+                    }
+                } else {
+                    throw new IOException("Unexpected message type: " + type);
+                }
+            }
+        }
+
+        private void replace() {
+            nLive.decrementAndGet();
+            try {
+                startWorker();
+                nRestarts.incrementAndGet();
+            } catch (RuntimeException e) {
+                System.err.println("EvaluationFarm: " + e + ": " + e.getCause());
+                if (nLive.get() == 0) close();
+            }
+        }
+
+        // also drops the worker from the farm, so replaced workers do not pile up
+        void kill() {
+            synchronized (workers) {
+                workers.remove(this);
+            }
+            try {
+                if (socket != null) socket.close();
+            } catch (IOException e) {
+                // nothing more to do
+            }
+            if (process != null) process.destroyForcibly();
+        }
+    }
+
+    private void retry(Job job, IOException e) {
+        if (++job.attempts > maxRetries) {
+            job.result.completeExceptionally(new RuntimeException("Evaluation failed after " + job.attempts + " attempts", e));
+        } else {
+            queue.addFirst(job);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package evodef;
 
+import utilities.TimeBudget;
+
 /**
  * Created by sml on 16/08/2016.
  *
@@ -18,7 +20,15 @@ public interface EvoAlg {
     EvolutionLogger getLogger();
     void setSamplingRate(int samplingRate);
 
-    // EvoAlg setTimeLimit(int ms);
+    // let the resampler decide how often to sample each solution;
+    // a fixed one is the same as setSamplingRate(int), and a racing one
+    // races each solution against the one the algorithm compares it with
+    void setSamplingRate(Resampler resampler);
+
+    // stop runTrial when the budget runs out, whatever nEvals says; the
+    // budget is checked once per iteration of the algorithm's main loop,
+    // the caller starts it before each run, and null turns it off again
+    void setTimeBudget(TimeBudget timeBudget);
 
 }
 
@@ -2,11 +2,33 @@ package evodef;
 
 import utilities.StatSummary;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
 
 /**
  * Created by sml on 16/08/2016.
+ *
+ * By default every fitness and solution is kept in the public lists.
+ * For long runs, stream() keeps the fitness values in a primitive array,
+ * only one in keepEvery of them (and of the best yet solutions), and no
+ * solutions unless keepLastSolutions or keepTopSolutions says so; the
+ * public lists are then left empty, so read the history through
+ * getFitnessArray, getSolutions and getBestYetSolutions.  In either mode
+ * spillTo writes every evaluation to a file as well, which load reads
+ * back.  The summary stats and best and final solutions are the same in
+ * both modes.
  */
 
 public class EvolutionLogger {
@@ -33,33 +55,199 @@ public class EvolutionLogger {
     double finalFitness;
     int nOptimal = 0;
     Integer firstHit;
+    int nEvals;
+
+    // streaming mode
+    boolean streaming = false;
+    int keepEvery = 1;
+    double[] fitness;
+    int nFitness;
+    int nBestYetLogged;
+    // the last nKeep solutions, in a ring, or the nKeep fittest
+    int nKeep = 0;
+    boolean keepTop = false;
+    int[][] ring;
+    PriorityQueue<Scored> top;
+
+    DataOutputStream spill;
+    // the spill is flushed at each reset, and at most this long after a record is written
+    static long spillFlushNanos = 1000000000L;
+    long lastSpillFlush;
+
+    static class Scored {
+        int[] solution;
+        double fitness;
+
+        Scored(int[] solution, double fitness) {
+            this.solution = solution;
+            this.fitness = fitness;
+        }
+    }
 
     public EvolutionLogger() {
         reset();
     }
 
+    /**
+     * Keeps one fitness value, and one best yet solution, in keepEvery.
+     */
+    public EvolutionLogger stream(int keepEvery) {
+        streaming = true;
+        this.keepEvery = Math.max(1, keepEvery);
+        reset();
+        return this;
+    }
+
+    public EvolutionLogger keepLastSolutions(int n) {
+        nKeep = n;
+        keepTop = false;
+        reset();
+        return this;
+    }
+
+    public EvolutionLogger keepTopSolutions(int n) {
+        nKeep = n;
+        keepTop = true;
+        reset();
+        return this;
+    }
+
+    /**
+     * Appends every evaluation from now on to the file, across resets,
+     * until closeSpill.  Each record is the solution's length as a varint,
+     * the fitness as a double, then the solution's values as varints.
+     * The file is flushed at each reset and every second or so while
+     * logging, so a run that is killed loses only its last few records.
+     */
+    public EvolutionLogger spillTo(File file) throws IOException {
+        closeSpill();
+        spill = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        lastSpillFlush = System.nanoTime();
+        return this;
+    }
+
+    public void flushSpill() {
+        if (spill == null) return;
+        try {
+            spill.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastSpillFlush = System.nanoTime();
+    }
+
+    public void closeSpill() {
+        if (spill == null) return;
+        try {
+            spill.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            spill = null;
+        }
+    }
+
     public void log(double fitness, int[] solution, boolean isOptimal) {
         finalSolution = solution;
         finalFitness = fitness;
+        nEvals++;
         if (fitness > ss.max()) {
-            bestGen = fa.size() + 1;
+            bestGen = nEvals;
             bestYet = solution;
         }
         if (isOptimal) {
             nOptimal++;
             if (firstHit == null)
-                firstHit = fa.size();
+                firstHit = nEvals - 1;
+        }
+        if (streaming) {
+            if ((nEvals - 1) % keepEvery == 0) {
+                if (nFitness == this.fitness.length)
+                    this.fitness = Arrays.copyOf(this.fitness, 2 * nFitness);
+                this.fitness[nFitness++] = fitness;
+            }
+            keepSolution(solution, fitness);
+        } else {
+            fa.add(fitness);
+            solutions.add(copy(solution));
         }
-        fa.add(fitness);
-        solutions.add(copy(solution));
         ss.add(fitness);
+        if (spill != null) writeRecord(fitness, solution);
         if (listener != null)
             listener.update(this, solution, fitness);
         // System.out.println(solutions.size());
     }
 
+    private void keepSolution(int[] solution, double fitness) {
+        if (nKeep <= 0) return;
+        if (keepTop) {
+            if (top.size() < nKeep) {
+                top.add(new Scored(copy(solution), fitness));
+            } else if (fitness > top.peek().fitness) {
+                top.poll();
+                top.add(new Scored(copy(solution), fitness));
+            }
+        } else {
+            int ix = (nEvals - 1) % nKeep;
+            ring[ix] = copy(solution);
+        }
+    }
+
+    private void writeRecord(double fitness, int[] solution) {
+        try {
+            writeVarInt(solution.length);
+            spill.writeDouble(fitness);
+            for (int x : solution) writeVarInt(x);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (System.nanoTime() - lastSpillFlush > spillFlushNanos) flushSpill();
+    }
+
+    private void writeVarInt(int x) throws IOException {
+        while ((x & ~0x7F) != 0) {
+            spill.writeByte((x & 0x7F) | 0x80);
+            x >>>= 7;
+        }
+        spill.writeByte(x);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int x = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            x |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return x;
+        }
+    }
+
+    /**
+     * Reads a file written by spillTo into a new logger, in the default mode.
+     * A record cut short at the end, as by a run that was killed while
+     * writing it, is left out.
+     */
+    public static EvolutionLogger load(File file) throws IOException {
+        EvolutionLogger logger = new EvolutionLogger();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                double fitness;
+                int[] solution;
+                try {
+                    int length = readVarInt(in);
+                    fitness = in.readDouble();
+                    solution = new int[length];
+                    for (int i = 0; i < length; i++) solution[i] = readVarInt(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                logger.log(fitness, solution, false);
+            }
+        }
+        return logger;
+    }
+
     public int nEvals() {
-        return fa.size();
+        return nEvals;
     }
 
     public void report() {
@@ -85,6 +273,7 @@ public class EvolutionLogger {
 
     public void logBestYest(int[] solution) {
         // bestYetSolutions.add(copy(solution));
+        if (streaming && nBestYetLogged++ % keepEvery != 0) return;
         bestYetSolutions.add(solution);
     }
 
@@ -109,6 +298,7 @@ public class EvolutionLogger {
 
     public void reset() {
         // System.out.println("RESETTING");
+        flushSpill();
         fa = new ArrayList<>();
         solutions = new ArrayList<>();
         bestYetSolutions = new ArrayList<>();
@@ -117,6 +307,12 @@ public class EvolutionLogger {
         bestGen = 0;
         nOptimal = 0;
         firstHit = null;
+        nEvals = 0;
+        fitness = new double[streaming ? 1024 : 0];
+        nFitness = 0;
+        nBestYetLogged = 0;
+        ring = keepTop || nKeep <= 0 ? null : new int[nKeep][];
+        top = keepTop && nKeep > 0 ? new PriorityQueue<>(Comparator.comparingDouble((Scored s) -> s.fitness)) : null;
     }
 
     int[] copy (int[] x) {
@@ -125,10 +321,33 @@ public class EvolutionLogger {
         return y;
     }
 
+    // when streaming, one in keepEvery of the values
     public ArrayList<Double> getFitnessArray() {
         ArrayList<Double> fitnessArray = new ArrayList<>();
-        for (Double x : fa) fitnessArray.add(x);
+        if (streaming) {
+            for (int i = 0; i < nFitness; i++) fitnessArray.add(fitness[i]);
+        } else {
+            for (Double x : fa) fitnessArray.add(x);
+        }
         return fitnessArray;
     }
-}
 
+    // when streaming, the solutions kept: the last ones, oldest first, or the fittest, best first
+    public ArrayList<int[]> getSolutions() {
+        if (!streaming) return solutions;
+        ArrayList<int[]> kept = new ArrayList<>();
+        if (top != null) {
+            ArrayList<Scored> scored = new ArrayList<>(top);
+            scored.sort(Comparator.comparingDouble((Scored s) -> -s.fitness));
+            for (Scored s : scored) kept.add(s.solution);
+        } else if (ring != null) {
+            int n = Math.min(nEvals, nKeep);
+            for (int i = nEvals - n; i < nEvals; i++) kept.add(ring[i % nKeep]);
+        }
+        return kept;
+    }
+
+    public ArrayList<int[]> getBestYetSolutions() {
+        return bestYetSolutions;
+    }
+}
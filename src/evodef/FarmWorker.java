@@ -0,0 +1,124 @@
+package evodef;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.function.Supplier;
+
+/**
+ * Worker process for an EvaluationFarm: holds one SolutionEvaluator and
+ * evaluates the solutions the farm sends it, one at a time.
+ *
+ * Arguments: the farm's port on the loopback interface, the class to make
+ * the evaluator from (a SolutionEvaluator or a Supplier of one, with a
+ * public no-argument constructor) and the heartbeat interval in millis.
+ *
+ * Messages, in either direction, start with a type byte:
+ *   HELLO      worker to farm on connecting: nDims, nValues for each
+ *              dimension, then the optimal fitness or NaN if unknown
+ *   EVALUATE   farm to worker: job id, length, the solution's values
+ *   RESULT     job id, fitness
+ *   ERROR      job id, the exception the evaluator threw, as a string
+ *   HEARTBEAT  sent every interval, also while evaluating
+ * The worker exits when the farm closes the connection.
+ */
+public class FarmWorker {
+
+    static final byte HELLO = 1;
+    static final byte EVALUATE = 2;
+    static final byte RESULT = 3;
+    static final byte ERROR = 4;
+    static final byte HEARTBEAT = 5;
+
+    // the evaluator's own log is cleared this often, to bound its memory
+    static int clearLogEvery = 10000;
+
+    public static void main(String[] args) throws Exception {
+        int port = Integer.parseInt(args[0]);
+        SolutionEvaluator evaluator = newEvaluator(args[1]);
+        int heartbeatMillis = Integer.parseInt(args[2]);
+
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        SearchSpace searchSpace = evaluator.searchSpace();
+        Double optimal = evaluator.optimalIfKnown();
+        synchronized (out) {
+            out.writeByte(HELLO);
+            out.writeInt(searchSpace.nDims());
+            for (int i = 0; i < searchSpace.nDims(); i++) {
+                out.writeInt(searchSpace.nValues(i));
+            }
+            out.writeDouble(optimal == null ? Double.NaN : optimal);
+            out.flush();
+        }
+
+        Thread heartbeat = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(heartbeatMillis);
+                    synchronized (out) {
+                        out.writeByte(HEARTBEAT);
+                        out.flush();
+                    }
+                }
+            } catch (Exception e) {
+                // the connection has gone, and main() will see it too
+            }
+        }, "FarmWorker-heartbeat");
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+
+        int nEvals = 0;
+        while (true) {
+            byte type;
+            try {
+                type = in.readByte();
+            } catch (EOFException | SocketException e) {
+                // the farm has closed or dropped the connection
+                break;
+            }
+            if (type != EVALUATE) throw new IOException("Unexpected message type: " + type);
+            int id = in.readInt();
+            int[] solution = new int[in.readInt()];
+            for (int i = 0; i < solution.length; i++) {
+                solution[i] = in.readInt();
+            }
+            try {
+                double fitness = evaluator.evaluate(solution);
+                synchronized (out) {
+                    out.writeByte(RESULT);
+                    out.writeInt(id);
+                    out.writeDouble(fitness);
+                    out.flush();
+                }
+            } catch (RuntimeException e) {
+                synchronized (out) {
+                    out.writeByte(ERROR);
+                    out.writeInt(id);
+                    out.writeUTF(String.valueOf(e));
+                    out.flush();
+                }
+            }
+            if (++nEvals % clearLogEvery == 0 && evaluator.logger() != null) {
+                evaluator.logger().reset();
+            }
+        }
+        socket.close();
+    }
+
+    static SolutionEvaluator newEvaluator(String className) throws Exception {
+        Object o = Class.forName(className).getDeclaredConstructor().newInstance();
+        if (o instanceof SolutionEvaluator) return (SolutionEvaluator) o;
+        if (o instanceof Supplier) return (SolutionEvaluator) ((Supplier<?>) o).get();
+        throw new IllegalArgumentException(className + " is neither a SolutionEvaluator nor a Supplier of one");
+    }
+}
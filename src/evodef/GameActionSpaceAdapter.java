@@ -33,6 +33,13 @@ public class GameActionSpaceAdapter implements FitnessSpace {
     // than immediate ones via an exponential decay
     double discountFactor = 0.99;
 
+    // resume rollouts from cached states after shared action prefixes;
+    // checks itself against full replays and turns off for stochastic games
+    public static boolean useRolloutCache = false;
+    public static int cacheCapacity = 5000;
+    public static int snapshotEvery = 5;
+    RolloutCache<StateObservation> cache;
+
 
     /**
      * For now assume that the number of actions available at each game tick is always
@@ -88,6 +95,34 @@ public class GameActionSpaceAdapter implements FitnessSpace {
 
     @Override
     public double evaluate(int[] actions) {
+        // need to do the visual stuff here ...
+        LinePlot linePlot = null;
+        if (visual) {
+            float grey = (nEvals % 100) / 100;
+            linePlot = new LinePlot().setColor(new Color(grey, grey, grey));
+        }
+
+        double delta;
+        if (useRolloutCache && !visual && (cache == null || cache.enabled())) {
+            if (cache == null) {
+                cache = new RolloutCache<>(numActions, cacheCapacity, snapshotEvery, StateObservation::copy);
+            }
+            delta = evaluateCached(actions);
+        } else {
+            delta = rollout(actions, linePlot);
+        }
+
+        if (visual) {
+            linePlots.add(linePlot);
+        }
+
+        nEvals++;
+        delta += noiseLevel * random.nextGaussian();
+        logger.log(delta, actions, false);
+        return delta;
+    }
+
+    private double rollout(int[] actions, LinePlot linePlot) {
         // take a copy of the current game state and accumulate the score as we go along
 
         StateObservation obs = stateObservation.copy();
@@ -98,13 +133,6 @@ public class GameActionSpaceAdapter implements FitnessSpace {
         double denom = 0;
         double discountedTot = 0;
 
-        // need to do the visual stuff here ...
-        LinePlot linePlot = null;
-        if (visual) {
-            float grey = (nEvals % 100) / 100;
-            linePlot = new LinePlot().setColor(new Color(grey, grey, grey));
-        }
-
         for (int i=0; i<sequenceLength; i++) {
             obs.advance(gvgaiActions[actions[i]]);
 
@@ -121,20 +149,56 @@ public class GameActionSpaceAdapter implements FitnessSpace {
             }
         }
 
-        if (visual) {
-            linePlots.add(linePlot);
+        if (useDiscountFactor) {
+            return discountedTot / denom;
+        } else {
+            return obs.getGameScore() - initScore;
         }
+    }
 
+    /**
+     * Same as rollout(actions, null), but resumed from the deepest cached
+     * prefix of the sequence, leaving snapshots for later sequences.
+     */
+    private double evaluateCached(int[] actions) {
+        RolloutCache.Node<StateObservation> start = cache.deepest(actions);
+        RolloutCache.Node<StateObservation> node = start;
+        StateObservation obs = start == cache.root() ? stateObservation.copy() : cache.resume(start);
+        double initScore = stateObservation.getGameScore();
+        double discount = start.discount;
+        double denom = start.denom;
+        double discountedTot = start.discountedTot;
+
+        for (int i=start.depth; i<sequenceLength; i++) {
+            obs.advance(gvgaiActions[actions[i]]);
+
+            discountedTot += discount * (obs.getGameScore() - initScore);
+            if (useHeuristic && obs instanceof SpaceBattleLinkState) {
+                SpaceBattleLinkState state = (SpaceBattleLinkState) obs;
+                discountedTot += state.getHeuristicScore();
+            }
+            denom += discount;
+            discount *= discountFactor;
+
+            if (i + 1 < sequenceLength && cache.isSnapshotDepth(i + 1)) {
+                node = cache.store(node, actions, i + 1, obs, discountedTot, denom, discount);
+            }
+        }
 
-        nEvals++;
         double delta;
         if (useDiscountFactor) {
             delta = discountedTot / denom;
         } else {
             delta = obs.getGameScore() - initScore;
         }
-        delta += noiseLevel * random.nextGaussian();
-        logger.log(delta, actions, false);
+        if (start != cache.root() && cache.shouldVerify()) {
+            double full = rollout(actions, null);
+            if (full != delta) {
+                // the game is not deterministic, so cached states cannot be trusted
+                cache.disable();
+                return full;
+            }
+        }
         return delta;
     }
 
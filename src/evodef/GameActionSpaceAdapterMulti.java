@@ -47,6 +47,18 @@ public class GameActionSpaceAdapterMulti implements FitnessSpace {
     int playerID;
     int opponentID;
 
+    // when false the opponent always plays nilAction instead of a random action
+    public static boolean randomOpponent = true;
+    int nilAction;
+
+    // resume rollouts from cached states after shared action prefixes;
+    // only used with a non-random opponent, and checks itself against
+    // full replays and turns off for stochastic games
+    public static boolean useRolloutCache = false;
+    public static int cacheCapacity = 5000;
+    public static int snapshotEvery = 5;
+    RolloutCache<StateObservationMulti> cache;
+
 
     /**
      * For now assume that the number of actions available at each game tick is always
@@ -70,6 +82,7 @@ public class GameActionSpaceAdapterMulti implements FitnessSpace {
             gvgaiActions[i] = act.get(i);
             // System.out.println(i + " Assigning " + gvgaiActions[i].ordinal());
             // the above was to check that they get assigned their ordinal values correctly
+            if (gvgaiActions[i] == Types.ACTIONS.ACTION_NIL) nilAction = i;
         }
         numActions = gvgaiActions.length;
         logger = new EvolutionLogger();
@@ -115,6 +128,7 @@ public class GameActionSpaceAdapterMulti implements FitnessSpace {
 
     public GameActionSpaceAdapterMulti setState(StateObservationMulti stateObservation) {
         this.stateObservation = stateObservation;
+        if (cache != null && cache.enabled()) cache.clear();
         return this;
     }
 
@@ -122,6 +136,24 @@ public class GameActionSpaceAdapterMulti implements FitnessSpace {
 
     @Override
     public double evaluate(int[] actions) {
+        double delta;
+        if (useRolloutCache && !randomOpponent && !visual && (cache == null || cache.enabled())) {
+            if (cache == null) {
+                cache = new RolloutCache<>(numActions, cacheCapacity, snapshotEvery, StateObservationMulti::copy);
+            }
+            delta = evaluateCached(actions);
+        } else {
+            delta = rollout(actions);
+        }
+
+        nEvals++;
+        delta += noiseLevel * random.nextGaussian();
+        logger.log(delta, actions, false);
+
+        return delta;
+    }
+
+    private double rollout(int[] actions) {
         // take a copy of the current game state and accumulate the score as we go along
 
         // System.out.println("Checking action length: " + actions.length + " : " + sequenceLength);
@@ -159,15 +191,16 @@ public class GameActionSpaceAdapterMulti implements FitnessSpace {
 
         // add this in for the plot
         // deltas.add(0);
+        // advance() does not keep the array, so one per rollout is enough
+        Types.ACTIONS[] acts = new Types.ACTIONS[2];
         for (int i=0; i<actions.length; i++) {
 
             // Note here that we need to look at the advance method which takes multiple players
             // hence an array of actions
             // the idea is that we'll pad out the
             int myAction = actions[i];
-            int opAction = random.nextInt(obs.getAvailableActions(opponentID).size());
+            int opAction = opponentAction(obs);
             // opAction = AsteroidsGameState.doNothing;
-            Types.ACTIONS[] acts = new Types.ACTIONS[2];
             acts[playerID] = gvgaiActions[myAction];
             acts[opponentID] = gvgaiActions[opAction];
 
@@ -195,16 +228,68 @@ public class GameActionSpaceAdapterMulti implements FitnessSpace {
             linePlots.add(linePlot);
         }
 
-        nEvals++;
+        if (useDiscountFactor) {
+            return discountedTot / denom;
+        } else {
+            return obs.getGameScore(playerID) - initScore;
+        }
+    }
+
+    private int opponentAction(StateObservationMulti obs) {
+        return randomOpponent ? random.nextInt(obs.getAvailableActions(opponentID).size()) : nilAction;
+    }
+
+    /**
+     * Same as rollout(actions) without the plotting, but resumed from the
+     * deepest cached prefix of the sequence, leaving snapshots for later
+     * sequences.
+     */
+    private double evaluateCached(int[] actions) {
+        RolloutCache.Node<StateObservationMulti> start = cache.deepest(actions);
+        RolloutCache.Node<StateObservationMulti> node = start;
+        StateObservationMulti obs = start == cache.root() ? stateObservation.copy() : cache.resume(start);
+        double initScore = stateObservation.getGameScore(playerID);
+        double discount = start.discount;
+        double denom = start.denom;
+        double discountedTot = start.discountedTot;
+
+        Types.ACTIONS[] acts = new Types.ACTIONS[2];
+        for (int i=start.depth; i<actions.length; i++) {
+            acts[playerID] = gvgaiActions[actions[i]];
+            acts[opponentID] = gvgaiActions[opponentAction(obs)];
+
+            for (int k=0; k< actionRepeat; k++) {
+                obs.advance(acts);
+            }
+
+            discountedTot += discount * (obs.getGameScore(playerID) - initScore);
+
+            if (useHeuristic && obs instanceof SpaceBattleLinkStateTwoPlayer) {
+                SpaceBattleLinkStateTwoPlayer state = (SpaceBattleLinkStateTwoPlayer) obs;
+                discountedTot += state.getHeuristicScore();
+            }
+            denom += discount;
+            discount *= discountFactor;
+
+            if (i + 1 < actions.length && cache.isSnapshotDepth(i + 1)) {
+                node = cache.store(node, actions, i + 1, obs, discountedTot, denom, discount);
+            }
+        }
+
         double delta;
         if (useDiscountFactor) {
             delta = discountedTot / denom;
         } else {
             delta = obs.getGameScore(playerID) - initScore;
         }
-        delta += noiseLevel * random.nextGaussian();
-        logger.log(delta, actions, false);
-
+        if (start != cache.root() && cache.shouldVerify()) {
+            double full = rollout(actions);
+            if (full != delta) {
+                // the game is not deterministic, so cached states cannot be trusted
+                cache.disable();
+                return full;
+            }
+        }
         return delta;
     }
 
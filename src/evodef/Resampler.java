@@ -0,0 +1,122 @@
+package evodef;
+
+import utilities.StatSummary;
+
+/**
+ * Decides how many times to evaluate a solution under a noisy evaluator.
+ *
+ * A fixed resampler always takes maxSamples.  A racing one takes
+ * minSamples, then goes on sampling, up to maxSamples, only while the
+ * candidate's mean is within z standard errors of the incumbent's: a
+ * candidate that is clearly worse, or clearly better, stops early, and
+ * the samples go where the ranking is still in doubt.
+ *
+ * The standard errors come from the spread of the samples, so nothing is
+ * decided on a single sample unless minSd is set; an incumbent with a
+ * single sample is taken to have the candidate's spread.
+ *
+ * Every EvoAlg takes its samples through a Resampler; setSamplingRate(n)
+ * is the same as a fixed(n) one.
+ */
+public class Resampler {
+
+    public int minSamples = 1;
+    public int maxSamples = 1;
+    // null for a fixed number of samples
+    public Double z = null;
+    // a floor on the standard deviation of one sample, if the noise is known
+    public double minSd = 0;
+
+    public static Resampler fixed(int nSamples) {
+        Resampler resampler = new Resampler();
+        resampler.minSamples = nSamples;
+        resampler.maxSamples = nSamples;
+        return resampler;
+    }
+
+    public static Resampler racing(int minSamples, int maxSamples, double z) {
+        Resampler resampler = new Resampler();
+        resampler.minSamples = minSamples;
+        resampler.maxSamples = maxSamples;
+        resampler.z = z;
+        return resampler;
+    }
+
+    public Resampler setMinSd(double minSd) {
+        this.minSd = minSd;
+        return this;
+    }
+
+    public boolean isRacing() {
+        return z != null;
+    }
+
+    /**
+     * Samples the solution against the incumbent, which may be null,
+     * in which case a racing resampler takes minSamples.
+     */
+    public StatSummary sample(SolutionEvaluator evaluator, int[] solution, StatSummary incumbent) {
+        return sample(evaluator, solution, incumbent, new StatSummary());
+    }
+
+    /**
+     * As above, but adds the samples to those already in ss.
+     */
+    public StatSummary sample(SolutionEvaluator evaluator, int[] solution, StatSummary incumbent, StatSummary ss) {
+        int n = isRacing() ? minSamples : maxSamples;
+        for (int i = 0; i < n; i++) {
+            ss.add(evaluator.evaluate(solution));
+        }
+        if (!isRacing() || incumbent == null || incumbent.n() == 0) return ss;
+        for (int i = n; i < maxSamples && !decided(ss, incumbent); i++) {
+            ss.add(evaluator.evaluate(solution));
+        }
+        return ss;
+    }
+
+    /**
+     * The best solution sampled so far, for race to race each new
+     * candidate against.
+     */
+    public static class Incumbent {
+        public int[] solution;
+        public StatSummary ss;
+    }
+
+    /**
+     * Samples the solution; a racing resampler races it against the
+     * incumbent, whose samples are topped up first, as SimpleRMHC tops up
+     * its parent, so that one that did well on a few lucky samples does
+     * not keep its place on them.  The top-ups stop once the incumbent has
+     * maxSamples, so a long-lived incumbent does not soak up the budget.
+     * The solution then becomes the incumbent if its mean is higher.
+     */
+    public StatSummary race(SolutionEvaluator evaluator, int[] solution, Incumbent incumbent) {
+        if (!isRacing()) return sample(evaluator, solution, null);
+        if (incumbent.ss != null) {
+            for (int i = 0; i < minSamples && incumbent.ss.n() < maxSamples; i++) {
+                incumbent.ss.add(evaluator.evaluate(incumbent.solution));
+            }
+        }
+        StatSummary ss = sample(evaluator, solution, incumbent.ss);
+        if (incumbent.ss == null || ss.mean() > incumbent.ss.mean()) {
+            incumbent.solution = solution;
+            incumbent.ss = ss;
+        }
+        return ss;
+    }
+
+    public boolean decided(StatSummary candidate, StatSummary incumbent) {
+        if (candidate.n() < 2 && minSd <= 0) return false;
+        double sdCandidate = Math.max(candidate.n() > 1 ? candidate.sd() : 0, minSd);
+        double sdIncumbent = Math.max(incumbent.n() > 1 ? incumbent.sd() : sdCandidate, minSd);
+        double se = Math.sqrt(sdCandidate * sdCandidate / candidate.n()
+                + sdIncumbent * sdIncumbent / incumbent.n());
+        return Math.abs(candidate.mean() - incumbent.mean()) > z * se;
+    }
+
+    public String toString() {
+        if (!isRacing()) return "r=" + maxSamples;
+        return String.format("r=%d..%d, z=%.1f", minSamples, maxSamples, z);
+    }
+}
@@ -0,0 +1,197 @@
+package evodef;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache of intermediate rollout states for deterministic games, so that an
+ * action sequence sharing a prefix with one evaluated before can be
+ * resumed from the end of that prefix instead of replayed from the root.
+ *
+ * The cache is a trie over action prefixes.  Every snapshotEvery actions
+ * along an evaluated sequence a copy of the state is stored, together
+ * with the evaluator's running totals at that point.  The number of trie
+ * nodes is bounded: nodes are kept in least recently used order, and each
+ * lookup or store refreshes its path from the bottom up, so a node is
+ * never less recently used than anything below it and eviction always
+ * takes a leaf.
+ *
+ * The evaluator should check a resumed result against a full replay now
+ * and then (see shouldVerify); a mismatch means the game is not
+ * deterministic, and the cache then switches itself off for good.
+ */
+public class RolloutCache<S> {
+
+    public static class Node<S> {
+        Node<S> parent;
+        int action;
+        public int depth;
+        Node<S>[] children;
+
+        public S snapshot;
+        // evaluator totals after the prefix
+        public double discountedTot, denom, discount;
+
+        // least recently used list
+        Node<S> prev, next;
+    }
+
+    int numActions;
+    int capacity;
+    int snapshotEvery;
+    UnaryOperator<S> copier;
+
+    Node<S> root;
+    // most recently used end of the list, and least recently used end
+    Node<S> head, tail;
+    int size;
+
+    boolean enabled = true;
+    int nVerified;
+    // always verify the first few resumed evaluations, then one in verifyEvery
+    public int verifyFirst = 3;
+    public int verifyEvery = 50;
+
+    public int nHits, nStepsSaved;
+
+    public RolloutCache(int numActions, int capacity, int snapshotEvery, UnaryOperator<S> copier) {
+        this.numActions = numActions;
+        this.capacity = capacity;
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+        this.copier = copier;
+        clear();
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public void disable() {
+        enabled = false;
+        clear();
+    }
+
+    public void clear() {
+        root = newNode(null, -1);
+        head = tail = null;
+        size = 0;
+    }
+
+    public Node<S> root() {
+        return root;
+    }
+
+    public boolean isSnapshotDepth(int depth) {
+        return depth % snapshotEvery == 0;
+    }
+
+    /**
+     * Deepest node on the path of the sequence that holds a snapshot, or
+     * the root if there is none; refreshes every node on the path.
+     */
+    public Node<S> deepest(int[] actions) {
+        Node<S> best = root;
+        Node<S> cur = root;
+        for (int i = 0; i < actions.length && cur.children != null; i++) {
+            Node<S> child = cur.children[actions[i]];
+            if (child == null) break;
+            cur = child;
+            if (cur.snapshot != null) best = cur;
+        }
+        touchPath(cur);
+        if (best != root) {
+            nHits++;
+            nStepsSaved += best.depth;
+        }
+        return best;
+    }
+
+    /**
+     * Stores a copy of the state reached after actions[0 .. depth-1],
+     * creating the trie path from the given ancestor down to it.  Returns
+     * the node, so the next store can start from there.
+     */
+    public Node<S> store(Node<S> from, int[] actions, int depth, S state,
+                         double discountedTot, double denom, double discount) {
+        Node<S> cur = from;
+        for (int i = from.depth; i < depth; i++) {
+            if (cur.children == null) {
+                @SuppressWarnings("unchecked")
+                Node<S>[] children = (Node<S>[]) new Node<?>[numActions];
+                cur.children = children;
+            }
+            Node<S> child = cur.children[actions[i]];
+            if (child == null) {
+                child = newNode(cur, actions[i]);
+                cur.children[actions[i]] = child;
+                link(child);
+                size++;
+            }
+            cur = child;
+        }
+        touchPath(cur);
+        if (cur.snapshot == null) {
+            cur.snapshot = copier.apply(state);
+            cur.discountedTot = discountedTot;
+            cur.denom = denom;
+            cur.discount = discount;
+        }
+        while (size > capacity) evict(tail);
+        return cur;
+    }
+
+    public S resume(Node<S> node) {
+        return copier.apply(node.snapshot);
+    }
+
+    public boolean shouldVerify() {
+        nVerified++;
+        return nVerified <= verifyFirst || nVerified % verifyEvery == 0;
+    }
+
+    private Node<S> newNode(Node<S> parent, int action) {
+        Node<S> node = new Node<>();
+        node.parent = parent;
+        node.action = action;
+        node.depth = parent == null ? 0 : parent.depth + 1;
+        node.discount = 1;
+        return node;
+    }
+
+    private void link(Node<S> node) {
+        node.prev = null;
+        node.next = head;
+        if (head != null) head.prev = node;
+        head = node;
+        if (tail == null) tail = node;
+    }
+
+    private void unlink(Node<S> node) {
+        if (node.prev != null) node.prev.next = node.next;
+        else head = node.next;
+        if (node.next != null) node.next.prev = node.prev;
+        else tail = node.prev;
+        node.prev = node.next = null;
+    }
+
+    private void touch(Node<S> node) {
+        if (node != head) {
+            unlink(node);
+            link(node);
+        }
+    }
+
+    private void touchPath(Node<S> node) {
+        for (Node<S> n = node; n != root; n = n.parent) touch(n);
+    }
+
+    private void evict(Node<S> node) {
+        if (node.children != null) {
+            for (Node<S> child : node.children) {
+                if (child != null) evict(child);
+            }
+        }
+        node.parent.children[node.action] = null;
+        unlink(node);
+        size--;
+    }
+}
@@ -48,6 +48,10 @@ public class SearchSpaceUtil {
     static Random random = new Random();
 
     public static int[] randomPoint(SearchSpace space) {
+        return randomPoint(space, random);
+    }
+
+    public static int[] randomPoint(SearchSpace space, Random random) {
 
         int[] p = new int[space.nDims()];
         for (int i=0; i<p.length; i++) {
@@ -67,6 +71,10 @@ public class SearchSpaceUtil {
     static Double pRepeat = null; // 1.0;
 
     public static int[] shiftLeftAndRandomAppend(int[] v, SearchSpace searchSpace) {
+        return shiftLeftAndRandomAppend(v, searchSpace, random);
+    }
+
+    public static int[] shiftLeftAndRandomAppend(int[] v, SearchSpace searchSpace, Random random) {
         int[] p = new int[v.length];
         for (int i=0; i<p.length-1; i++) {
             p[i] = v[i+1];
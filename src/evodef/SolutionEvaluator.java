@@ -1,5 +1,7 @@
 package evodef;
 
+import java.util.List;
+
 /**
  * Created by simonmarklucas on 06/08/2016.
  *
@@ -12,6 +14,16 @@ public interface SolutionEvaluator {
     public void reset();
     double evaluate(int[] solution);
 
+    // evaluates the solutions in order; an evaluator that can run several
+    // at once, such as EvaluationFarm, overrides this to do so
+    default double[] evaluateAll(List<int[]> solutions) {
+        double[] fitness = new double[solutions.size()];
+        for (int i = 0; i < fitness.length; i++) {
+            fitness[i] = evaluate(solutions.get(i));
+        }
+        return fitness;
+    }
+
     // has the algorithm found the optimal solution?
     boolean optimalFound();
     SearchSpace searchSpace();
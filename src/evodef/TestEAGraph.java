@@ -64,7 +64,7 @@ public class TestEAGraph {
 
         ArrayList<Double> noiseFree = new ArrayList<>();
         // System.out.println("Best yet solutions length: " + solutionEvaluator.logger().bestYetSolutions.size());
-        for (int[] p : evaluator.logger().bestYetSolutions) {
+        for (int[] p : evaluator.logger().getBestYetSolutions()) {
             noiseFree.add(evaluator.trueFitness(p));
         }
 
@@ -234,7 +234,7 @@ public class TestEASimple {
 
         ArrayList<Double> noiseFree = new ArrayList<>();
         // System.out.println("Best yet solutions length: " + solutionEvaluator.logger().bestYetSolutions.size());
-        for (int[] p : solutionEvaluator.logger().bestYetSolutions) {
+        for (int[] p : solutionEvaluator.logger().getBestYetSolutions()) {
             noiseFree.add(solutionEvaluator.trueFitness(p));
         }
         // TODO: 23/06/2017 save data
@@ -4,6 +4,7 @@ import evodef.*;
 import evodef.BanditLandscapeModel;
 import utilities.Picker;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.Arrays;
 
@@ -21,6 +22,13 @@ public class GridSearch implements EvoAlg {
     SearchSpace searchSpace;
     EvolutionLogger logger;
 
+    TimeBudget timeBudget;
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int nEvals) {
 
@@ -46,13 +54,18 @@ public class GridSearch implements EvoAlg {
             results[i] = new StatSummary();
         }
 
-        for (int i=0; i<nEvals; i++) {
+        // a racing resampler races each point against the best so far
+        int bestYet = -1;
+        int nDone = 0;
+        for (int i=0; nDone<nEvals && (timeBudget == null || timeBudget.next()); i++) {
             // each time pick the next point in the search space
             // evaluate it, and add it to the stats
             int index = i % (int) searchSpaceSize;
             int[] solution = SearchSpaceUtil.nthPoint(searchSpace, index);
-            double fitness = evaluator.evaluate(solution);
-            results[index].add(fitness);
+            int before = results[index].n();
+            resampler.sample(evaluator, solution, bestYet < 0 || bestYet == index ? null : results[bestYet], results[index]);
+            nDone += results[index].n() - before;
+            if (bestYet < 0 || results[index].mean() > results[bestYet].mean()) bestYet = index;
         }
 
         //
@@ -61,7 +74,8 @@ public class GridSearch implements EvoAlg {
 
         Picker<Integer> picker = new Picker<>(Picker.MAX_FIRST);
         for (int i=0; i<results.length; i++) {
-            picker.add(results[i].mean(), i);
+            // a time budget may run out before every point is visited
+            if (results[i].n() > 0) picker.add(results[i].mean(), i);
         }
 
         int best = picker.getBest();
@@ -88,10 +102,16 @@ public class GridSearch implements EvoAlg {
         return logger;
     }
 
+    Resampler resampler = Resampler.fixed(1);
+
+    // each visit to a point takes this many samples
     @Override
     public void setSamplingRate(int samplingRate) {
+        resampler = Resampler.fixed(samplingRate);
+    }
 
-        // may comment this out if the exception is too inconvenient
-        throw new RuntimeException("Sampling rate not supported for Grid Search");
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
     }
 }
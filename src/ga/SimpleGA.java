@@ -4,9 +4,11 @@ import evodef.*;
 import evodef.DefaultMutator;
 import evodef.BanditLandscapeModel;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -32,7 +34,7 @@ public class SimpleGA implements EvoAlg {
     int popSize = 20;
 
     // default to 1
-    int nSamples = 1;
+    Resampler resampler = Resampler.fixed(1);
 
     double selectionPressure = 0.1;
 
@@ -50,7 +52,7 @@ public class SimpleGA implements EvoAlg {
     }
 
     public SimpleGA setSampleRate(int nSamples) {
-        this.nSamples = nSamples;
+        this.resampler = Resampler.fixed(nSamples);
         return this;
     }
 
@@ -97,6 +99,13 @@ public class SimpleGA implements EvoAlg {
 
     DefaultMutator mutator;
 
+    TimeBudget timeBudget;
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int nEvals) {
         this.evaluator = evaluator;
@@ -105,7 +114,7 @@ public class SimpleGA implements EvoAlg {
         initPop();
         // System.out.println(pop.size() + " : " + popSize);
 
-        while (evaluator.nEvals() < nEvals) {
+        while (evaluator.nEvals() < nEvals && (timeBudget == null || timeBudget.next())) {
 
             int prevEvals = evaluator.nEvals();
 
@@ -172,8 +181,28 @@ public class SimpleGA implements EvoAlg {
     }
 
     private void evalPop() {
-        for (ScoredVec sv : pop) {
-            sv.score = fitness(sv.p);
+        if (resampler.isRacing()) {
+            // each individual is raced against the best before it, so they are sampled in turn
+            StatSummary best = null;
+            for (ScoredVec sv : pop) {
+                StatSummary ss = resampler.sample(evaluator, sv.p, best);
+                if (best == null || ss.mean() > best.mean()) best = ss;
+                sv.score = ss.mean();
+            }
+        } else {
+            // the whole population goes to the evaluator at once, so one that
+            // runs evaluations in parallel, such as EvaluationFarm, can do so
+            int nSamples = resampler.maxSamples;
+            List<int[]> batch = new ArrayList<>();
+            for (ScoredVec sv : pop) {
+                for (int i=0; i<nSamples; i++) batch.add(sv.p);
+            }
+            double[] fitness = evaluator.evaluateAll(batch);
+            for (int k=0; k<pop.size(); k++) {
+                StatSummary ss = new StatSummary();
+                for (int i=0; i<nSamples; i++) ss.add(fitness[k * nSamples + i]);
+                pop.get(k).score = ss.mean();
+            }
         }
         // and sort them
         Collections.sort(pop);
@@ -186,18 +215,6 @@ public class SimpleGA implements EvoAlg {
         // System.out.println();
     }
 
-    double fitness(int[] sol) {
-        if (nSamples == 1)
-            return evaluator.evaluate(sol);
-        // otherwise ...
-        StatSummary ss = new StatSummary();
-        for (int i=0; i<nSamples; i++) {
-            double fitness = evaluator.evaluate(sol);
-            ss.add(fitness);
-        }
-        return ss.mean();
-    }
-
     @Override
     public void setModel(BanditLandscapeModel nTupleSystem) {
 
@@ -217,6 +234,11 @@ public class SimpleGA implements EvoAlg {
 
     @Override
     public void setSamplingRate(int samplingRate) {
+        setSampleRate(samplingRate);
+    }
 
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
     }
 }
@@ -3,7 +3,9 @@ package ga;
 import evodef.*;
 import evodef.DefaultMutator;
 import evodef.BanditLandscapeModel;
+import utilities.Metrics;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.Arrays;
 import java.util.Random;
@@ -11,7 +13,10 @@ import java.util.Random;
 public class SimpleRMHC implements EvoAlg {
 
     // Random mutation hill climber for testing one-max
-    static Random random = new Random();
+    static Random sharedRandom = new Random();
+    Random random = sharedRandom;
+
+    static final Metrics.Histogram evaluateTime = Metrics.histogram("SimpleRMHC.evaluate");
 
     int[] bestYet;
 
@@ -19,22 +24,27 @@ public class SimpleRMHC implements EvoAlg {
     // SolutionEvaluator evaluator
     SearchSpace searchSpace;
 
-    private int nSamples;
+    private Resampler resampler;
 
     public SimpleRMHC() {
         this(1);
     }
 
     public SimpleRMHC(int nSamples) {
-        this.nSamples = nSamples;
+        this.resampler = Resampler.fixed(nSamples);
     }
 
     public String toString() {
-        return String.format("RMHC, r=%d", nSamples);
+        return "RMHC, " + resampler;
     }
 
     public void setSamplingRate(int n) {
-        this.nSamples = n;
+        this.resampler = Resampler.fixed(n);
+    }
+
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
     }
 
 
@@ -59,11 +69,24 @@ public class SimpleRMHC implements EvoAlg {
 
     Mutator mutator;
 
+    TimeBudget timeBudget;
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     public SimpleRMHC setMutator(Mutator mutator) {
         this.mutator = mutator;
         return this;
     }
 
+    // seeds the starting point, and the default mutator if no other is set
+    public SimpleRMHC setRandom(Random random) {
+        this.random = random;
+        return this;
+    }
+
     /**
      * @param evaluator
      * @param maxEvals
@@ -72,15 +95,16 @@ public class SimpleRMHC implements EvoAlg {
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int maxEvals) {
         init(evaluator);
-        StatSummary fitBest = fitness(evaluator, bestYet, new StatSummary());
+        StatSummary fitBest = fitness(evaluator, bestYet, new StatSummary(), null);
 
         // create a mutator if it has not already been made
         if (mutator == null)
-            mutator = new DefaultMutator(searchSpace);
+            mutator = new DefaultMutator(searchSpace).setRandom(random);
         else
             mutator.setSearchSpace(searchSpace);
 
-        while (evaluator.nEvals() < maxEvals && !evaluator.optimalFound()) {
+        while (evaluator.nEvals() < maxEvals && !evaluator.optimalFound()
+                && (timeBudget == null || timeBudget.next())) {
             // System.out.println("nEvals: " + evaluator.nEvals());
             int[] mut = mutator.randMut(bestYet);
             // int[] mut = randMutAll(bestYet);
@@ -97,13 +121,23 @@ public class SimpleRMHC implements EvoAlg {
 
             // keep track of how much we want to mutate this
             int prevEvals = evaluator.nEvals();
-            StatSummary fitMut = fitness(evaluator, mut, new StatSummary());
-            if (accumulateBestYetStats) {
-                fitBest = fitness(evaluator, bestYet, fitBest);
-
+            StatSummary fitMut;
+            if (resampler.isRacing()) {
+                // race the mutant against the parent, whose samples are kept,
+                // and topped up, for as long as it survives
+                if (accumulateBestYetStats || resampleParent) {
+                    fitBest = fitness(evaluator, bestYet, fitBest, null);
+                }
+                fitMut = fitness(evaluator, mut, new StatSummary(), fitBest);
             } else {
-                if (resampleParent) {
-                    fitBest = fitness(evaluator, bestYet, new StatSummary());
+                fitMut = fitness(evaluator, mut, new StatSummary(), null);
+                if (accumulateBestYetStats) {
+                    fitBest = fitness(evaluator, bestYet, fitBest, null);
+
+                } else {
+                    if (resampleParent) {
+                        fitBest = fitness(evaluator, bestYet, new StatSummary(), null);
+                    }
                 }
             }
             // System.out.println(fitBest.mean() + " : " + fitMut.mean() + " : " + (fitBest.mean() > fitMut.mean()) );
@@ -159,12 +193,10 @@ public class SimpleRMHC implements EvoAlg {
         return evaluator.logger();
     }
 
-    StatSummary fitness(SolutionEvaluator evaluator, int[] sol, StatSummary ss) {
-        for (int i = 0; i < nSamples; i++) {
-            double fitness = evaluator.evaluate(sol);
-            // System.out.println((int) fitness + "\t " + Arrays.toString(sol));
-            ss.add(fitness);
-        }
+    StatSummary fitness(SolutionEvaluator evaluator, int[] sol, StatSummary ss, StatSummary incumbent) {
+        long start = Metrics.start();
+        resampler.sample(evaluator, sol, incumbent, ss);
+        evaluateTime.recordSince(start);
         if (model != null) {
             // System.out.println("Added summary");
             // model.addSummary(sol, ss);
@@ -178,7 +210,7 @@ public class SimpleRMHC implements EvoAlg {
         this.evaluator = evaluator;
         this.searchSpace = evaluator.searchSpace();
         if (seed == null) {
-            bestYet = SearchSpaceUtil.randomPoint(searchSpace);
+            bestYet = SearchSpaceUtil.randomPoint(searchSpace, random);
         } else {
             bestYet = SearchSpaceUtil.copyPoint(seed);
         }
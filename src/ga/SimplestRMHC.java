@@ -2,6 +2,7 @@ package ga;
 
 import evodef.*;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.Random;
 
@@ -17,8 +18,20 @@ public class SimplestRMHC implements EvoAlg {
         return "SimplestRMHC";
     }
 
+    Resampler resampler = Resampler.fixed(1);
+
     public void setSamplingRate(int n) {
-        System.out.println("Operation not supported in SimplestRMHC");
+        resampler = Resampler.fixed(n);
+    }
+
+    // a racing resampler races each mutant against the parent
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
+    }
+
+    StatSummary fitness(SolutionEvaluator evaluator, int[] sol, StatSummary incumbent) {
+        return resampler.sample(evaluator, sol, incumbent);
     }
 
     public void setInitialSeed(int[] seed) {
@@ -32,6 +45,13 @@ public class SimplestRMHC implements EvoAlg {
         return this;
     }
 
+    TimeBudget timeBudget;
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     /**
      * @param evaluator
      * @param maxEvals
@@ -40,7 +60,7 @@ public class SimplestRMHC implements EvoAlg {
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int maxEvals) {
         init(evaluator);
-        double fitBest = evaluator.evaluate(bestYet);
+        StatSummary fitBest = fitness(evaluator, bestYet, null);
 
         // create a mutator if it has not already been made
         if (mutator == null)
@@ -48,19 +68,21 @@ public class SimplestRMHC implements EvoAlg {
         else
             mutator.setSearchSpace(searchSpace);
 
-        while (evaluator.nEvals() < maxEvals && !evaluator.optimalFound()) {
+        while (evaluator.nEvals() < maxEvals && !evaluator.optimalFound() && (timeBudget == null || timeBudget.next())) {
             int[] mut = mutator.randMut(bestYet);
 
-            double fitMut = evaluator.evaluate(mut);
+            // the parent's samples are topped up before each race, so a lucky one does not hold its place
+            if (resampler.isRacing()) resampler.sample(evaluator, bestYet, null, fitBest);
+            StatSummary fitMut = fitness(evaluator, mut, fitBest);
             int diff = DefaultMutator.diffHamming(bestYet, mut);
 //            System.out.println(fitBest + " : " + fitMut + " : " + (fitBest > fitMut) + "\t " + diff);
 //            System.out.println(searchSpace.nDims() + "\t " + searchSpace.nValues(0));
 //            System.out.println(evaluator);
-            if (fitMut >= fitBest) {
+            if (fitMut.mean() >= fitBest.mean()) {
                 // System.out.println("Updating best");
                 bestYet = mut;
                 fitBest = fitMut;
-                evaluator.logger().keepBest(mut, fitMut);
+                evaluator.logger().keepBest(mut, fitMut.mean());
             }
             evaluator.logger().logBestYest(bestYet);
         }
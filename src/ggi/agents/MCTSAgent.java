@@ -0,0 +1,351 @@
+package ggi.agents;
+
+import agents.dummy.DoNothingAgent;
+import ggi.core.AbstractGameState;
+import ggi.core.AbstractGameStateMulti;
+import ggi.core.HashableGameState;
+import ggi.core.SimplePlayerInterface;
+import utilities.TimeBudget;
+
+import java.util.Random;
+
+/**
+ * Open loop MCTS that plans directly on an AbstractGameState with int
+ * actions, so games such as SpinBattle and PlanetWars can be searched at
+ * full speed instead of through the GVGAI link states.
+ *
+ * In two-player games the other player's moves, both in the tree and in
+ * the rollouts, come from an opponent model (any SimplePlayerInterface,
+ * by default DoNothingAgent as in SimpleEvoAgent).  Values are the change
+ * in getScore() from the root, negated for player 1, as elsewhere in ggi.
+ *
+ * With a TranspositionTable set and a HashableGameState, the value of a
+ * rollout from each newly reached state is stored under the state's hash
+ * (together with the player and the remaining depth), and a state that
+ * is already in the table, for instance reached through a different
+ * order of commuting moves, reuses the stored value instead of being
+ * simulated again, once the value averages tableMinVisits rollouts.
+ * The table can be kept across decisions and shared between agents on
+ * the same thread.  It is not used with discounting.
+ *
+ * getActions(AbstractGameStateMulti, playerId) searches the joint actions
+ * of all of a player's units, with the other players' units acting at
+ * random.
+ */
+public class MCTSAgent implements SimplePlayerInterface {
+
+    static class TreeNode {
+        TreeNode parent;
+        TreeNode[] children;
+        int nExpanded;
+        int nVisits;
+        double totValue;
+
+        TreeNode(TreeNode parent, int nActions) {
+            this.parent = parent;
+            children = new TreeNode[nActions];
+        }
+    }
+
+    Random random = new Random();
+
+    int nIterations = 200;
+    int rolloutDepth = 20;
+    double K = Math.sqrt(2);
+    double epsilon = 1e-6;
+    Double discountFactor = null;
+
+    SimplePlayerInterface opponent = new DoNothingAgent();
+
+    // if set, each decision runs until the budget expires, with nIterations ignored
+    TimeBudget timeBudget;
+
+    TranspositionTable table;
+    // stored samples needed before a state's rollout is skipped; a single
+    // random rollout is a noisy value, so by default a few are averaged
+    // first, while 1 suits games where rollouts from a state vary little
+    int tableMinVisits = 4;
+    public int nRollouts, nTableHits;
+
+    // reward bounds seen during the current search, used to normalise values
+    double lo, hi;
+
+    public MCTSAgent setIterations(int nIterations) {
+        this.nIterations = nIterations;
+        return this;
+    }
+
+    public MCTSAgent setRolloutDepth(int rolloutDepth) {
+        this.rolloutDepth = rolloutDepth;
+        return this;
+    }
+
+    public MCTSAgent setK(double K) {
+        this.K = K;
+        return this;
+    }
+
+    public MCTSAgent setDiscountFactor(Double discountFactor) {
+        this.discountFactor = discountFactor;
+        return this;
+    }
+
+    public MCTSAgent setOpponent(SimplePlayerInterface opponent) {
+        this.opponent = opponent;
+        return this;
+    }
+
+    public MCTSAgent setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+        return this;
+    }
+
+    public MCTSAgent setTableMinVisits(int tableMinVisits) {
+        this.tableMinVisits = tableMinVisits;
+        return this;
+    }
+
+    public MCTSAgent setSeed(long seed) {
+        random.setSeed(seed);
+        return this;
+    }
+
+    /**
+     * Use millis of wall clock time per decision instead of a fixed number
+     * of iterations; 0 or less goes back to counting iterations.
+     */
+    public MCTSAgent setTimeBudget(long millis) {
+        timeBudget = millis > 0 ? new TimeBudget(millis) : null;
+        return this;
+    }
+
+    public SimplePlayerInterface reset() {
+        return this;
+    }
+
+    public int getAction(AbstractGameState gameState, int playerId) {
+        return search(gameState, playerId, opponent);
+    }
+
+    /**
+     * Picks an action for each of the player's units.
+     */
+    public int[] getActions(AbstractGameStateMulti gameState, int playerId) {
+        MultiView view = new MultiView(gameState, playerId, random);
+        return view.decode(search(view, 0, null));
+    }
+
+    private boolean moreIterations(int i) {
+        return timeBudget == null ? i < nIterations : timeBudget.next();
+    }
+
+    private int search(AbstractGameState rootState, int playerId, SimplePlayerInterface opponent) {
+        if (timeBudget != null) timeBudget.start();
+
+        TreeNode root = new TreeNode(null, rootState.nActions());
+        double rootScore = rootState.getScore();
+        lo = Double.MAX_VALUE;
+        hi = -Double.MAX_VALUE;
+        int[] actions = new int[2];
+
+        for (int i = 0; moreIterations(i); i++) {
+            AbstractGameState state = rootState.copy();
+            TreeNode node = root;
+            int depth = 0;
+
+            // selection and expansion
+            while (!state.isTerminal() && depth < rolloutDepth) {
+                int action;
+                boolean expanded = node.nExpanded < node.children.length;
+                if (expanded) {
+                    action = unexpandedAction(node);
+                    node.children[action] = new TreeNode(node, 0);
+                    node.nExpanded++;
+                } else {
+                    action = uct(node);
+                }
+                state = advance(state, actions, action, playerId, opponent);
+                depth++;
+                node = node.children[action];
+                if (node.children.length == 0) node.children = new TreeNode[state.nActions()];
+                if (expanded) break;
+            }
+
+            double value;
+            if (table != null && discountFactor == null && state instanceof HashableGameState) {
+                value = tableValue((HashableGameState) state, depth, rootScore, playerId, opponent);
+            } else {
+                value = rollOut(state, depth, rootScore, playerId, opponent);
+            }
+            state.release();
+
+            if (value < lo) lo = value;
+            if (value > hi) hi = value;
+
+            for (TreeNode n = node; n != null; n = n.parent) {
+                n.nVisits++;
+                n.totValue += value;
+            }
+        }
+        return mostVisitedAction(root);
+    }
+
+    private double tableValue(HashableGameState state, int depth, double rootScore,
+                              int playerId, SimplePlayerInterface opponent) {
+        // the value to go from a state depends on who is asking and how far
+        // the rollout still has to run, so both are folded into the key
+        long key = state.hash() ^ (0x9E3779B97F4A7C15L * ((rolloutDepth - depth) * 2 + playerId + 1));
+        double sign = playerId == 0 ? 1 : -1;
+        double gained = sign * (state.getScore() - rootScore);
+        int slot = table.find(key);
+        if (table.visits(slot) >= tableMinVisits) {
+            nTableHits++;
+            return gained + table.mean(slot);
+        }
+        double value = rollOut(state, depth, rootScore, playerId, opponent);
+        table.add(key, value - gained);
+        return value;
+    }
+
+    private double rollOut(AbstractGameState state, int depth, double rootScore,
+                           int playerId, SimplePlayerInterface opponent) {
+        nRollouts++;
+        int[] actions = new int[2];
+        double value = 0;
+        double discount = 1;
+        double score = rootScore;
+        while (!state.isTerminal() && depth < rolloutDepth) {
+            state = advance(state, actions, random.nextInt(state.nActions()), playerId, opponent);
+            depth++;
+            if (discountFactor != null) {
+                double next = state.getScore();
+                value += (next - score) * discount;
+                discount *= discountFactor;
+                score = next;
+            }
+        }
+        if (discountFactor == null) value = state.getScore() - rootScore;
+        return playerId == 0 ? value : -value;
+    }
+
+    private AbstractGameState advance(AbstractGameState state, int[] actions, int action,
+                                      int playerId, SimplePlayerInterface opponent) {
+        actions[playerId] = action;
+        if (opponent != null) actions[1 - playerId] = opponent.getAction(state, 1 - playerId);
+        return state.next(actions);
+    }
+
+    private int unexpandedAction(TreeNode node) {
+        // pick uniformly among the children not yet in the tree
+        int k = random.nextInt(node.children.length - node.nExpanded);
+        for (int a = 0; a < node.children.length; a++) {
+            if (node.children[a] == null && k-- == 0) return a;
+        }
+        throw new IllegalStateException("No unexpanded action");
+    }
+
+    private int uct(TreeNode node) {
+        double logVisits = Math.log(node.nVisits + 1);
+        double range = hi - lo;
+        int selected = 0;
+        double bestValue = -Double.MAX_VALUE;
+        for (int a = 0; a < node.children.length; a++) {
+            TreeNode child = node.children[a];
+            double childValue = child.totValue / (child.nVisits + epsilon);
+            if (range > 0) childValue = (childValue - lo) / range;
+            double uctValue = childValue + K * Math.sqrt(logVisits / (child.nVisits + epsilon))
+                    + epsilon * random.nextDouble();    // break ties randomly
+            if (uctValue > bestValue) {
+                selected = a;
+                bestValue = uctValue;
+            }
+        }
+        return selected;
+    }
+
+    private int mostVisitedAction(TreeNode root) {
+        int selected = 0;
+        int mostVisits = -1;
+        double bestMean = -Double.MAX_VALUE;
+        for (int a = 0; a < root.children.length; a++) {
+            TreeNode child = root.children[a];
+            if (child == null) continue;
+            double mean = child.totValue / child.nVisits;
+            if (child.nVisits > mostVisits || (child.nVisits == mostVisits && mean > bestMean)) {
+                selected = a;
+                mostVisits = child.nVisits;
+                bestMean = mean;
+            }
+        }
+        return selected;
+    }
+
+    public String toString() {
+        return "MCTS: " + nIterations + " : " + rolloutDepth + " : " + opponent;
+    }
+
+    /**
+     * Presents a multi-unit game to the search as a single player game:
+     * one action is a joint action for all of the player's units (in mixed
+     * radix, unit 0 varying fastest), the score is the player's own, and
+     * the other players' units act at random.
+     */
+    static class MultiView implements AbstractGameState {
+
+        AbstractGameStateMulti state;
+        int playerId;
+        Random random;
+
+        MultiView(AbstractGameStateMulti state, int playerId, Random random) {
+            this.state = state;
+            this.playerId = playerId;
+            this.random = random;
+        }
+
+        public AbstractGameState copy() {
+            return new MultiView(state.copy(), playerId, random);
+        }
+
+        public AbstractGameState next(int[] actions) {
+            int nPlayers = state.getScore().length;
+            int[][] joint = new int[nPlayers][];
+            for (int p = 0; p < nPlayers; p++) {
+                if (p == playerId) {
+                    joint[p] = decode(actions[0]);
+                } else {
+                    int[] nActions = state.nActions(p);
+                    joint[p] = new int[nActions.length];
+                    for (int u = 0; u < nActions.length; u++) {
+                        joint[p][u] = random.nextInt(nActions[u]);
+                    }
+                }
+            }
+            state = state.next(joint);
+            return this;
+        }
+
+        public int nActions() {
+            int n = 1;
+            for (int k : state.nActions(playerId)) n *= k;
+            return n;
+        }
+
+        int[] decode(int action) {
+            int[] nActions = state.nActions(playerId);
+            int[] unitActions = new int[nActions.length];
+            for (int u = 0; u < nActions.length; u++) {
+                unitActions[u] = action % nActions[u];
+                action /= nActions[u];
+            }
+            return unitActions;
+        }
+
+        public double getScore() {
+            return state.getScore()[playerId];
+        }
+
+        public boolean isTerminal() {
+            return state.isTerminal();
+        }
+    }
+}
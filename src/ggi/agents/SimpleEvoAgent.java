@@ -4,8 +4,14 @@ import agents.dummy.DoNothingAgent;
 import agents.dummy.RandomAgent;
 import ggi.core.AbstractGameState;
 import ggi.core.SimplePlayerInterface;
+import utilities.DaemonPool;
+import utilities.TimeBudget;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class SimpleEvoAgent implements SimplePlayerInterface {
 
@@ -21,6 +27,33 @@ public class SimpleEvoAgent implements SimplePlayerInterface {
     // SimplePlayerInterface opponent = new RandomAgent();
     SimplePlayerInterface opponent = new DoNothingAgent();
 
+    // when true the incumbent's score is remembered instead of being
+    // re-simulated on every iteration; this is exact for deterministic games,
+    // and for noisy ones resampleIncumbentEvery > 0 refreshes it periodically
+    boolean cacheIncumbentScore = false;
+    int resampleIncumbentEvery = 0;
+
+    // number of mutants evaluated concurrently on each iteration;
+    // 1 gives the original sequential (1+1) loop
+    int batchSize = 1;
+    ExecutorService pool;
+    // one generator per batch slot, so the mutations do not depend on how
+    // tasks are scheduled on to threads; the runs are only repeatable if the
+    // game and the opponent are too, since an opponent with its own Random,
+    // such as RandomAgent, is called in thread order unless its moves are
+    // precomputed
+    Random[] slotRandoms;
+
+    // if set, each decision runs until the budget expires, with nEvals ignored
+    TimeBudget timeBudget;
+
+    // when true the opponent is only asked for its moves once per decision,
+    // along a playout of the incumbent, and that stream of moves is then
+    // replayed in every rollout; the cost of a rollout no longer depends
+    // on the opponent, and the opponent need not be thread safe
+    boolean precomputeOpponent = false;
+    int[] opponentActions;
+
     public SimplePlayerInterface reset() {
         solution = null;
         return this;
@@ -41,6 +74,65 @@ public class SimpleEvoAgent implements SimplePlayerInterface {
         return this;
     }
 
+    public SimpleEvoAgent setCacheIncumbentScore(boolean cacheIncumbentScore) {
+        this.cacheIncumbentScore = cacheIncumbentScore;
+        return this;
+    }
+
+    public SimpleEvoAgent setResampleIncumbentEvery(int resampleIncumbentEvery) {
+        this.resampleIncumbentEvery = resampleIncumbentEvery;
+        return this;
+    }
+
+    public SimpleEvoAgent setPrecomputeOpponent(boolean precomputeOpponent) {
+        this.precomputeOpponent = precomputeOpponent;
+        return this;
+    }
+
+    /**
+     * Evaluates batchSize mutants of the incumbent at a time on a pool of
+     * nThreads threads, keeping the best of each batch if it is at least
+     * as good as the incumbent.  nEvals still counts mutants evaluated.
+     * The game state's copy() and, unless its moves are precomputed, the
+     * opponent must be safe to call from several threads at once
+     * (DoNothingAgent and RandomAgent are).  Call shutdown when done.
+     */
+    public SimpleEvoAgent setParallel(int batchSize, int nThreads) {
+        shutdown();
+        this.batchSize = batchSize;
+        pool = batchSize > 1 ? DaemonPool.newFixedPool(nThreads, "SimpleEvoAgent") : null;
+        slotRandoms = new Random[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            slotRandoms[i] = new Random(random.nextLong());
+        }
+        return this;
+    }
+
+    // stops the pool's threads; the agent goes back to evaluating one mutant at a time
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
+        pool = null;
+        batchSize = 1;
+    }
+
+    /**
+     * Use millis of wall clock time per decision instead of a fixed nEvals;
+     * 0 or less goes back to counting evaluations.
+     */
+    public SimpleEvoAgent setTimeBudget(long millis) {
+        timeBudget = millis > 0 ? new TimeBudget(millis) : null;
+        return this;
+    }
+
+    private boolean moreEvals(int i) {
+        return timeBudget == null ? i < nEvals : timeBudget.next();
+    }
+
+    private boolean needIncumbentScore(boolean haveScore, int i) {
+        if (!cacheIncumbentScore || !haveScore) return true;
+        return resampleIncumbentEvery > 0 && i % resampleIncumbentEvery == 0;
+    }
+
     public int[] getActions(AbstractGameState gameState, int playerId) {
         if (useShiftBuffer && solution != null) {
             solution = shiftLeftAndRandomAppend(solution, gameState.nActions());
@@ -48,13 +140,27 @@ public class SimpleEvoAgent implements SimplePlayerInterface {
             solution = randomPoint(gameState.nActions());
         }
 
-        for (int i = 0; i < nEvals; i++) {
-            // evaluate the current one
-            int[] mut = mutate(solution, expectedMutations, gameState.nActions());
-            double curScore = evalSeq(gameState.copy(), solution, playerId);
-            double mutScore = evalSeq(gameState.copy(), mut, playerId);
-            if (mutScore >= curScore) {
-                solution = mut;
+        if (timeBudget != null) timeBudget.start();
+
+        opponentActions = precomputeOpponent ? planOpponent(gameState.copy(), playerId) : null;
+
+        if (pool != null) {
+            evolveParallel(gameState, playerId);
+        } else {
+            double curScore = 0;
+            boolean haveScore = false;
+            for (int i = 0; moreEvals(i); i++) {
+                // evaluate the current one
+                int[] mut = mutate(solution, expectedMutations, gameState.nActions(), random);
+                if (needIncumbentScore(haveScore, i)) {
+                    curScore = evalSeq(gameState.copy(), solution, playerId);
+                    haveScore = true;
+                }
+                double mutScore = evalSeq(gameState.copy(), mut, playerId);
+                if (mutScore >= curScore) {
+                    solution = mut;
+                    curScore = mutScore;
+                }
             }
         }
 
@@ -65,7 +171,49 @@ public class SimpleEvoAgent implements SimplePlayerInterface {
     }
 
 
-    private int[] mutate(int[] v, double expectedMutations, int nActions) {
+    private void evolveParallel(AbstractGameState gameState, int playerId) {
+        int nActions = gameState.nActions();
+        double curScore = 0;
+        boolean haveScore = false;
+        int[][] muts = new int[batchSize][];
+        double[] scores = new double[batchSize];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; moreEvals(i); i += batchSize) {
+            int n = timeBudget == null ? Math.min(batchSize, nEvals - i) : batchSize;
+            int[] parent = solution;
+            futures.clear();
+            for (int k = 0; k < n; k++) {
+                int slot = k;
+                futures.add(pool.submit(() -> {
+                    muts[slot] = mutate(parent, expectedMutations, nActions, slotRandoms[slot]);
+                    scores[slot] = evalSeq(gameState.copy(), muts[slot], playerId);
+                }));
+            }
+            // the incumbent is evaluated on this thread while the mutants run
+            if (needIncumbentScore(haveScore, i)) {
+                curScore = evalSeq(gameState.copy(), parent, playerId);
+                haveScore = true;
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    throw new RuntimeException("Rollout failed", e);
+                }
+            }
+            // ties go to the lowest slot, to keep runs repeatable
+            int best = 0;
+            for (int k = 1; k < n; k++) {
+                if (scores[k] > scores[best]) best = k;
+            }
+            if (scores[best] >= curScore) {
+                solution = muts[best];
+                curScore = scores[best];
+            }
+        }
+    }
+
+    private int[] mutate(int[] v, double expectedMutations, int nActions, Random random) {
 
         int n = v.length;
         int[] x = new int[n];
@@ -81,7 +229,7 @@ public class SimpleEvoAgent implements SimplePlayerInterface {
         // copy all the values faithfully apart from the chosen one
         for (int i = 0; i < n; i++) {
             if (i == ix || random.nextDouble() < mutProb) {
-                x[i] = mutateValue(v[i], nActions);
+                x[i] = mutateValue(v[i], nActions, random);
             } else {
                 x[i] = v[i];
             }
@@ -89,7 +237,7 @@ public class SimpleEvoAgent implements SimplePlayerInterface {
         return x;
     }
 
-    private int mutateValue(int cur, int nPossible) {
+    private int mutateValue(int cur, int nPossible, Random random) {
         // the range is nPossible-1, since we
         // selecting the current value is not allowed
         // therefore we add 1 if the randomly chosen
@@ -117,6 +265,25 @@ public class SimpleEvoAgent implements SimplePlayerInterface {
     }
 
 
+    // plays the incumbent once, recording the opponent's replies
+    private int[] planOpponent(AbstractGameState gameState, int playerId) {
+        int[] replies = new int[solution.length];
+        int[] actions = new int[2];
+        for (int i = 0; i < solution.length; i++) {
+            actions[playerId] = solution[i];
+            actions[1 - playerId] = opponent.getAction(gameState, 1 - playerId);
+            replies[i] = actions[1 - playerId];
+            gameState = gameState.next(actions);
+        }
+        gameState.release();
+        return replies;
+    }
+
+    private int opponentAction(AbstractGameState gameState, int playerId, int i) {
+        if (opponentActions != null) return opponentActions[i];
+        return opponent.getAction(gameState, 1 - playerId);
+    }
+
     Double discountFactor = null;
 
 
@@ -131,12 +298,13 @@ public class SimpleEvoAgent implements SimplePlayerInterface {
     private double evalSeqNoDiscount(AbstractGameState gameState, int[] seq, int playerId) {
         double current = gameState.getScore();
         int[] actions = new int[2];
-        for (int action : seq) {
-            actions[playerId] = action;
-            actions[1 - playerId] = opponent.getAction(gameState, 1 - playerId);
+        for (int i = 0; i < seq.length; i++) {
+            actions[playerId] = seq[i];
+            actions[1 - playerId] = opponentAction(gameState, playerId, i);
             gameState = gameState.next(actions);
         }
         double delta = gameState.getScore() - current;
+        gameState.release();
         if (playerId == 0)
             return delta;
         else
@@ -148,9 +316,9 @@ public class SimpleEvoAgent implements SimplePlayerInterface {
         double delta = 0;
         double discount = 1;
         int[] actions = new int[2];
-        for (int action : seq) {
-            actions[playerId] = action;
-            actions[1 - playerId] = opponent.getAction(gameState, 1 - playerId);
+        for (int i = 0; i < seq.length; i++) {
+            actions[playerId] = seq[i];
+            actions[1 - playerId] = opponentAction(gameState, playerId, i);
             gameState = gameState.next(actions);
             double nextScore = gameState.getScore();
             double tickDelta = nextScore - currentScore;
@@ -158,6 +326,7 @@ public class SimpleEvoAgent implements SimplePlayerInterface {
             delta += tickDelta * discount;
             discount *= discountFactor;
         }
+        gameState.release();
         if (playerId == 0)
             return delta;
         else
@@ -0,0 +1,95 @@
+package ggi.agents;
+
+import java.util.Arrays;
+
+/**
+ * Bounded table of visit counts and value sums keyed by 64 bit state
+ * hashes, for searches that want to share statistics between
+ * transpositions (the same state reached by different action orders),
+ * between successive decisions, or between agents on the same thread.
+ *
+ * The table is a power of two number of two-slot buckets.  A new key
+ * takes an empty slot if there is one, otherwise it replaces the slot
+ * with fewer visits, so well sampled entries survive a stream of
+ * one-off states.  Key 0 marks an empty slot, so a hash of 0 is stored
+ * as 1.  The table is not thread safe.
+ */
+public class TranspositionTable {
+
+    long[] keys;
+    int[] visits;
+    double[] sums;
+    int mask;
+
+    public int nStores, nReplacements;
+
+    public TranspositionTable(int log2Buckets) {
+        int nSlots = 2 << log2Buckets;
+        keys = new long[nSlots];
+        visits = new int[nSlots];
+        sums = new double[nSlots];
+        mask = (1 << log2Buckets) - 1;
+    }
+
+    static long key(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    private int bucket(long key) {
+        // fold the high bits in, Zobrist keys are well mixed but other hashes may not be
+        return 2 * ((int) (key ^ (key >>> 32)) & mask);
+    }
+
+    /**
+     * Slot holding the hash, or -1 if it is not in the table.
+     */
+    public int find(long hash) {
+        long key = key(hash);
+        int b = bucket(key);
+        if (keys[b] == key) return b;
+        if (keys[b + 1] == key) return b + 1;
+        return -1;
+    }
+
+    public int visits(int slot) {
+        return slot < 0 ? 0 : visits[slot];
+    }
+
+    public double mean(int slot) {
+        return sums[slot] / visits[slot];
+    }
+
+    /**
+     * Adds one sample for the hash, making room for it if need be.
+     */
+    public void add(long hash, double value) {
+        long key = key(hash);
+        int b = bucket(key);
+        int slot;
+        if (keys[b] == key || keys[b + 1] == key) {
+            slot = keys[b] == key ? b : b + 1;
+        } else {
+            if (keys[b] == 0) slot = b;
+            else if (keys[b + 1] == 0) slot = b + 1;
+            else {
+                slot = visits[b] <= visits[b + 1] ? b : b + 1;
+                nReplacements++;
+            }
+            keys[slot] = key;
+            visits[slot] = 0;
+            sums[slot] = 0;
+        }
+        visits[slot]++;
+        sums[slot] += value;
+        nStores++;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        nStores = nReplacements = 0;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+}
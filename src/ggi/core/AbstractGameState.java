@@ -21,6 +21,12 @@ public interface AbstractGameState {
 
     boolean isTerminal();
 
+    // called on a copy that is about to be discarded, such as the end of a
+    // rollout, so a game that pools its objects can take them back;
+    // the state must not be used afterwards
+    default void release() {
+    }
+
     // double[] getFeatureFector();
 
     // int[][] getScreen();
@@ -4,12 +4,17 @@ import planetwar.GameLog;
 import plot.LineChart;
 import plot.LineChartAxis;
 import plot.LinePlot;
+import utilities.DaemonPool;
 import utilities.ElapsedTimer;
 import utilities.JEasyFrame;
 import utilities.StatSummary;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 public class GameRunnerTwoPlayer {
 
@@ -26,13 +31,23 @@ public class GameRunnerTwoPlayer {
 
     ArrayList<GameLog> gameLogs;
     public boolean verbose = true;
+    // no console output at all, whatever verbose says
+    public boolean quiet = false;
+    // the logs are only needed by plotGameScores
+    public boolean keepGameLogs = true;
 
     public AbstractGameFactory gameFactory;
 
+    // with player factories set, every game gets its own pair of players,
+    // so that games can be played in parallel on the pool
+    public Supplier<? extends SimplePlayerInterface> p1Factory, p2Factory;
+    ExecutorService pool;
+
 
     public GameRunnerTwoPlayer setPlayers(SimplePlayerInterface p1, SimplePlayerInterface p2) {
         this.p1 = p1;
         this.p2 = p2;
+        p1Factory = p2Factory = null;
         reset();
         return this;
     }
@@ -43,6 +58,43 @@ public class GameRunnerTwoPlayer {
         return this;
     }
 
+    /**
+     * Makes playGames create a new pair of players for each game instead of
+     * resetting p1 and p2; p1 and p2 are then the players of the first game
+     * of the latest playGames, for the reports.  setPlayers goes back to
+     * playing with p1 and p2.
+     */
+    public GameRunnerTwoPlayer setPlayerFactories(Supplier<? extends SimplePlayerInterface> p1Factory,
+                                                  Supplier<? extends SimplePlayerInterface> p2Factory) {
+        this.p1Factory = p1Factory;
+        this.p2Factory = p2Factory;
+        reset();
+        return this;
+    }
+
+    /**
+     * Plays games from the player factories on a pool of nThreads threads;
+     * 1 or less plays them one at a time again.  The games and players are
+     * still made on the calling thread, in order, and the results are added
+     * in game order, so with seeded players a run gives the same stats
+     * however many threads it uses.
+     */
+    public GameRunnerTwoPlayer setParallel(int nThreads) {
+        shutdown();
+        pool = nThreads > 1 ? DaemonPool.newFixedPool(nThreads, "GameRunnerTwoPlayer") : null;
+        return this;
+    }
+
+    public GameRunnerTwoPlayer setQuiet(boolean quiet) {
+        this.quiet = quiet;
+        return this;
+    }
+
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
+        pool = null;
+    }
+
     public GameRunnerTwoPlayer setLength(int nSteps) {
         this.nSteps = nSteps;
         reset();
@@ -68,10 +120,14 @@ public class GameRunnerTwoPlayer {
         // plays an additional n games without resetting the stats
         ElapsedTimer t = new ElapsedTimer();
 
-        for (int i=0; i<n; i++) {
-            playGame();
+        if (p1Factory != null) {
+            playFactoryGames(n);
+        } else {
+            for (int i=0; i<n; i++) {
+                playGame();
+            }
         }
-        if (verbose) {
+        if (verbose && !quiet) {
             System.out.println(p1 + " versus " + p2);
             System.out.println(scores);
             System.out.println();
@@ -81,10 +137,35 @@ public class GameRunnerTwoPlayer {
             System.out.println("Init leader wins: " + nInitialLeaderWins);
             System.out.println(t);
         }
-        System.out.println();
+        if (!quiet) System.out.println();
         return this;
     }
 
+    private void playFactoryGames(int n) {
+        List<Future<GameLog>> futures = new ArrayList<>();
+        for (int i=0; i<n; i++) {
+            AbstractGameState gameState = gameFactory.newGame();
+            SimplePlayerInterface a = p1Factory.get();
+            SimplePlayerInterface b = p2Factory.get();
+            if (i == 0) {
+                p1 = a;
+                p2 = b;
+            }
+            if (pool != null) {
+                futures.add(pool.submit(() -> runGame(gameState, a, b)));
+            } else {
+                addResult(runGame(gameState, a, b));
+            }
+        }
+        for (Future<GameLog> future : futures) {
+            try {
+                addResult(future.get());
+            } catch (Exception e) {
+                throw new RuntimeException("Game failed", e);
+            }
+        }
+    }
+
 
     public GameRunnerTwoPlayer playGame() {
         playGame(p1, p2);
@@ -114,7 +195,15 @@ public class GameRunnerTwoPlayer {
 
     public GameRunnerTwoPlayer playGame(SimplePlayerInterface p1, SimplePlayerInterface p2) {
         // System.out.println("Game Runner Two Player: " + gameFactory);
-        AbstractGameState gameState = gameFactory.newGame();
+        addResult(runGame(gameFactory.newGame(), p1, p2));
+        return this;
+    }
+
+    /**
+     * Plays one game from the given state without touching the stats, so it
+     * can be called from several threads; addResult adds the outcome in.
+     */
+    public GameLog runGame(AbstractGameState gameState, SimplePlayerInterface p1, SimplePlayerInterface p2) {
         GameLog gameLog = new GameLog();
         gameLog.addScore(gameState.getScore());
 
@@ -133,12 +222,17 @@ public class GameRunnerTwoPlayer {
             gameLog.addScore(gameState.getScore());
             delay();
         }
-        scores.add(gameState.getScore());
+        return gameLog;
+    }
+
+    public void addResult(GameLog gameLog) {
+        double score = gameLog.scores.get(gameLog.scores.size() - 1);
+        scores.add(score);
 
-        if (gameState.getScore() > 0) p1Wins++;
-        if (gameState.getScore() < 0) p2Wins++;
-        if (verbose) {
-            System.out.format("Game %d, score: %d\n", nGames, (int) gameState.getScore());
+        if (score > 0) p1Wins++;
+        if (score < 0) p2Wins++;
+        if (verbose && !quiet) {
+            System.out.format("Game %d, score: %d\n", nGames, (int) score);
             System.out.println("Lead changes: "+ gameLog.leadChanges);
             System.out.println(gameLog);
             System.out.println();
@@ -146,8 +240,7 @@ public class GameRunnerTwoPlayer {
         }
         nGames++;
         if (gameLog.leaderHadAdvantage()) nInitialLeaderWins++;
-        gameLogs.add(gameLog);
-        return this;
+        if (keepGameLogs) gameLogs.add(gameLog);
     }
 
     static int maxNameLen = 25;
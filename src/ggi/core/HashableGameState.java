@@ -0,0 +1,18 @@
+package ggi.core;
+
+/**
+ * Optional capability for games whose states can be identified by a
+ * 64 bit hash, so that a search can recognise a state it has already
+ * reached by a different sequence of actions.
+ *
+ * Equal states must have equal hashes; distinct states should collide
+ * only with negligible probability.  hash() should be cheap enough to call
+ * on every node of a search: a game may keep the hash up to date as the
+ * state changes, or, like planetwar.GameState, compute it from Zobrist keys
+ * when first asked after a change and keep it until the next one.
+ */
+public interface HashableGameState extends AbstractGameState {
+
+    long hash();
+
+}
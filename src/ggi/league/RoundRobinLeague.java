@@ -4,11 +4,22 @@ import ggi.core.AbstractGameState;
 import ggi.core.AbstractVisualRunner;
 import ggi.core.GameRunnerTwoPlayer;
 import ggi.core.SimplePlayerInterface;
+import planetwar.GameLog;
 
+import java.awt.*;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
 
 /**
  *  Should move this later to the the ggi package ...
+ *
+ *  With player factories set, playGames breaks the league up into single
+ *  games, each with its own players, which run on a work stealing pool
+ *  (see setParallel), and each pairing can stop early once its outcome is
+ *  clear (see setEarlyStop).
  */
 
 public class RoundRobinLeague {
@@ -19,20 +30,74 @@ public class RoundRobinLeague {
     public int[][] results;
     public AbstractVisualRunner abstractVisualRunner;
 
+    public ArrayList<Supplier<? extends SimplePlayerInterface>> playerFactories;
+    ForkJoinPool pool;
+
+    public boolean verbose = true;
+    // plot the scores of each pairing's games; never done when headless
+    public boolean plotScores = true;
+
+    // a pairing stops once |p1Wins - p2Wins| / sqrt(p1Wins + p2Wins) reaches
+    // earlyStopZ, after at least earlyStopMinGames games; null plays them all
+    public Double earlyStopZ = null;
+    public int earlyStopMinGames = 10;
+
+    public int nGamesPlayed, nGamesCounted;
+
     public RoundRobinLeague setPlayers(ArrayList<SimplePlayerInterface> players) {
         this.players = players;
         nPlayers = players.size();
         results = new int[nPlayers][nPlayers];
+        playerFactories = null;
+        return this;
+    }
+
+    /**
+     * Each game gets new players from the factories; players holds one more
+     * from each factory, for the reports.
+     */
+    public RoundRobinLeague setPlayerFactories(ArrayList<Supplier<? extends SimplePlayerInterface>> playerFactories) {
+        ArrayList<SimplePlayerInterface> players = new ArrayList<>();
+        for (Supplier<? extends SimplePlayerInterface> factory : playerFactories) {
+            players.add(factory.get());
+        }
+        setPlayers(players);
+        this.playerFactories = playerFactories;
+        return this;
+    }
+
+    /**
+     * Games from the player factories are played on nThreads threads;
+     * 1 or less plays them one at a time.
+     */
+    public RoundRobinLeague setParallel(int nThreads) {
+        shutdown();
+        pool = nThreads > 1 ? new ForkJoinPool(nThreads) : null;
+        return this;
+    }
+
+    public RoundRobinLeague setEarlyStop(Double earlyStopZ, int earlyStopMinGames) {
+        this.earlyStopZ = earlyStopZ;
+        this.earlyStopMinGames = earlyStopMinGames;
         return this;
     }
 
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
+        pool = null;
+    }
+
     public RoundRobinLeague playGames(int nGames) {
-        System.out.println(players);
+        if (playerFactories != null) {
+            playScheduledGames(nGames);
+            return this;
+        }
+        if (verbose) System.out.println(players);
         for (int i=0; i<nPlayers; i++) {
             for (int j=0; j<nPlayers; j++) {
 
                 if (i != j) {
-                    System.out.println(i + " : " + j);
+                    if (verbose) System.out.println(i + " : " + j);
                     if (abstractVisualRunner != null) {
                         SimplePlayerInterface p1 = players.get(i);
                         SimplePlayerInterface p2 = players.get(j);
@@ -41,23 +106,134 @@ public class RoundRobinLeague {
                     }
 
                     gameRunner.setPlayers(players.get(i), players.get(j));
-                    gameRunner.verbose = true;
+                    gameRunner.verbose = verbose;
+                    gameRunner.quiet = !verbose;
                     gameRunner.playGames(nGames);
 
                     results[i][j] += gameRunner.p1Wins;
                     results[j][i] += gameRunner.p2Wins;
 
-                    System.out.println(players.get(i));
-                    System.out.println("Versus");
-                    System.out.println(players.get(j));
-                    System.out.println(gameRunner.p1Wins + " : " + gameRunner.p2Wins);
-                    gameRunner.plotGameScores();
+                    if (verbose) {
+                        System.out.println(players.get(i));
+                        System.out.println("Versus");
+                        System.out.println(players.get(j));
+                        System.out.println(gameRunner.p1Wins + " : " + gameRunner.p2Wins);
+                    }
+                    if (plotScores && !GraphicsEnvironment.isHeadless()) gameRunner.plotGameScores();
                 }
             }
         }
         return this;
     }
 
+    static class Pairing {
+        int i, j;
+        // filled in as the games finish, in any order
+        GameLog[] logs;
+        // the games at the front of logs that have been added to the results
+        int nCounted;
+        int p1Wins, p2Wins;
+        volatile boolean settled;
+
+        Pairing(int i, int j, int nGames) {
+            this.i = i;
+            this.j = j;
+            logs = new GameLog[nGames];
+        }
+    }
+
+    private void playScheduledGames(int nGames) {
+        List<Pairing> pairings = new ArrayList<>();
+        for (int i=0; i<nPlayers; i++) {
+            for (int j=0; j<nPlayers; j++) {
+                if (i != j) pairings.add(new Pairing(i, j, nGames));
+            }
+        }
+
+        // the games and players are made here, in order, so that a league
+        // with seeded players plays out the same on any number of threads;
+        // game k of every pairing is queued before game k + 1 of any, so
+        // pairings that settle early free the pool for the others
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int k=0; k<nGames; k++) {
+            for (Pairing pairing : pairings) {
+                AbstractGameState gameState = gameRunner.gameFactory.newGame();
+                SimplePlayerInterface p1 = playerFactories.get(pairing.i).get();
+                SimplePlayerInterface p2 = playerFactories.get(pairing.j).get();
+                int game = k;
+                Runnable task = () -> {
+                    if (pairing.settled) return;
+                    GameLog gameLog = gameRunner.runGame(gameState, p1, p2);
+                    addResult(pairing, game, gameLog);
+                };
+                if (pool != null) {
+                    tasks.add(pool.submit(task));
+                } else {
+                    task.run();
+                }
+            }
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.get();
+            } catch (Exception e) {
+                throw new RuntimeException("League game failed", e);
+            }
+        }
+
+        for (Pairing pairing : pairings) {
+            if (verbose) {
+                System.out.println(pairing.i + " : " + pairing.j);
+                System.out.println(players.get(pairing.i));
+                System.out.println("Versus");
+                System.out.println(players.get(pairing.j));
+                System.out.println(pairing.p1Wins + " : " + pairing.p2Wins + " in " + pairing.nCounted + " games");
+            }
+            if (plotScores && !GraphicsEnvironment.isHeadless()) plot(pairing);
+        }
+    }
+
+    // results only ever grow by the unbroken run of finished games at the
+    // front of a pairing, so the outcome does not depend on the finishing order
+    private synchronized void addResult(Pairing pairing, int game, GameLog gameLog) {
+        nGamesPlayed++;
+        pairing.logs[game] = gameLog;
+        while (!pairing.settled && pairing.nCounted < pairing.logs.length
+                && pairing.logs[pairing.nCounted] != null) {
+            GameLog log = pairing.logs[pairing.nCounted];
+            double score = log.scores.get(log.scores.size() - 1);
+            if (score > 0) {
+                pairing.p1Wins++;
+                results[pairing.i][pairing.j]++;
+            }
+            if (score < 0) {
+                pairing.p2Wins++;
+                results[pairing.j][pairing.i]++;
+            }
+            pairing.nCounted++;
+            nGamesCounted++;
+            pairing.settled = settled(pairing);
+        }
+    }
+
+    private boolean settled(Pairing pairing) {
+        if (earlyStopZ == null || pairing.nCounted < earlyStopMinGames) return false;
+        int n = pairing.p1Wins + pairing.p2Wins;
+        if (n == 0) return false;
+        return Math.abs(pairing.p1Wins - pairing.p2Wins) / Math.sqrt(n) >= earlyStopZ;
+    }
+
+    private void plot(Pairing pairing) {
+        GameRunnerTwoPlayer runner = new GameRunnerTwoPlayer().setGameFactory(gameRunner.gameFactory);
+        runner.nSteps = gameRunner.nSteps;
+        runner.setPlayers(players.get(pairing.i), players.get(pairing.j));
+        runner.setQuiet(true);
+        for (int k=0; k<pairing.nCounted; k++) {
+            runner.addResult(pairing.logs[k]);
+        }
+        runner.plotGameScores();
+    }
+
     public String toString() {
         StringBuilder sb = new StringBuilder();
         // add the players
@@ -0,0 +1,312 @@
+package ggi.tests;
+
+import asteroids.AsteroidsGameState;
+import caveswing.core.CaveGameFactory;
+import evogame.DefaultParams;
+import evogame.GameParameters;
+import ggi.core.AbstractGameFactory;
+import ggi.core.AbstractGameState;
+import planetwar.PlanetWarGameFactory;
+import spinbattle.core.SpinGameStateFactory;
+import utilities.DaemonPool;
+import utilities.StatSummary;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Headless speed test for every registered game: the throughput of next,
+ * copy and getScore, and of whole random rollouts, each with the bytes
+ * allocated per operation, then rollouts on 1 thread up to maxThreads.
+ *
+ * Each measurement runs warmupIterations untimed iterations, then
+ * nIterations timed ones of iterationMillis each, and reports the mean
+ * rate over the timed iterations with its standard error.  Results are
+ * printed, and written as CSV if a file is given, one row per measurement,
+ * so that runs can be compared for regressions.
+ *
+ * Usage: GameBenchmark [csvFile [game ...]]
+ */
+public class GameBenchmark {
+
+    public static Map<String, AbstractGameFactory> factories = new LinkedHashMap<>();
+
+    static {
+        register("PlanetWars", new PlanetWarGameFactory());
+        register("SpinBattle", new SpinGameStateFactory());
+        register("CaveSwing", new CaveGameFactory());
+        register("Asteroids", () -> new AsteroidsGameState()
+                .setParams(new GameParameters().injectValues(new DefaultParams())).initForwardModel());
+    }
+
+    public static void register(String name, AbstractGameFactory factory) {
+        factories.put(name, factory);
+    }
+
+    public static void main(String[] args) throws IOException {
+        GameBenchmark benchmark = new GameBenchmark();
+        List<String> games = args.length > 1 ? Arrays.asList(args).subList(1, args.length)
+                : new ArrayList<>(factories.keySet());
+        PrintWriter csv = args.length > 0 ? new PrintWriter(new FileWriter(args[0])) : null;
+        if (csv != null) csv.println(Result.header);
+        System.out.println(Result.header);
+        for (String game : games) {
+            for (Result result : benchmark.run(game)) {
+                System.out.println(result);
+                if (csv != null) csv.println(result);
+            }
+        }
+        if (csv != null) csv.close();
+    }
+
+    public int warmupIterations = 2;
+    public int nIterations = 5;
+    public int iterationMillis = 500;
+    // a rollout, or a run of next, restarts after this many ticks or at the end of the game
+    public int rolloutSteps = 100;
+    // the length of the actions array; a single player game ignores the rest
+    public int nPlayers = 2;
+    public int maxThreads = DaemonPool.nCores();
+    public long seed = 0;
+
+    public static class Result {
+        static String header = "game,benchmark,threads,opsPerSec,stdErr,ticksPerSec,bytesPerOp,bytesPerTick";
+
+        String game, benchmark;
+        int threads;
+        double opsPerSec, stdErr, ticksPerSec, bytesPerOp, bytesPerTick;
+
+        public String toString() {
+            return String.format("%s,%s,%d,%s,%s,%s,%s,%s", game, benchmark, threads,
+                    format(opsPerSec), format(stdErr), format(ticksPerSec), format(bytesPerOp), format(bytesPerTick));
+        }
+
+        // NaN, for a figure that was not measured, is left blank
+        static String format(double x) {
+            return Double.isNaN(x) ? "" : String.format("%.1f", x);
+        }
+    }
+
+    public GameBenchmark setIterations(int warmupIterations, int nIterations, int iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.nIterations = nIterations;
+        this.iterationMillis = iterationMillis;
+        return this;
+    }
+
+    public GameBenchmark setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+        return this;
+    }
+
+    // one operation, with its own state, for one thread
+    abstract class Op {
+        AbstractGameState root;
+        Random random;
+        int[] actions = new int[nPlayers];
+        long ticks;
+
+        Op(AbstractGameState root, long seed) {
+            this.root = root;
+            random = new Random(seed);
+        }
+
+        abstract void run();
+
+        AbstractGameState step(AbstractGameState state) {
+            for (int i = 0; i < actions.length; i++) {
+                actions[i] = random.nextInt(state.nActions());
+            }
+            ticks++;
+            return state.next(actions);
+        }
+    }
+
+    // somewhere to put results, so the work is not optimised away
+    volatile Object sink;
+    volatile double scoreSink;
+
+    public List<Result> run(String game) {
+        AbstractGameFactory factory = factories.get(game);
+        if (factory == null) throw new IllegalArgumentException("No game registered as " + game);
+        List<Result> results = new ArrayList<>();
+        // every measurement starts from a copy of the same state, so the
+        // rows for different numbers of threads play the same game
+        AbstractGameState start = factory.newGame();
+
+        results.add(measure(game, "next", new Op(start.copy(), seed) {
+            AbstractGameState state = root.copy();
+            int n = 0;
+
+            void run() {
+                if (n++ == rolloutSteps || state.isTerminal()) {
+                    state = root.copy();
+                    n = 0;
+                }
+                state = step(state);
+            }
+        }));
+
+        // copy and getScore are timed on a state part way into a game
+        AbstractGameState mid = start.copy();
+        Op warm = new Op(mid, seed) {
+            void run() {
+            }
+        };
+        for (int i = 0; i < rolloutSteps / 2 && !mid.isTerminal(); i++) {
+            mid = warm.step(mid);
+        }
+        results.add(measure(game, "copy", new Op(mid, seed) {
+            void run() {
+                sink = root.copy();
+            }
+        }));
+        results.add(measure(game, "getScore", new Op(mid, seed) {
+            void run() {
+                scoreSink = root.getScore();
+            }
+        }));
+
+        for (int nThreads = 1; nThreads <= maxThreads; nThreads = nextThreads(nThreads)) {
+            results.add(measureRollouts(game, start, nThreads));
+        }
+        return results;
+    }
+
+    private int nextThreads(int nThreads) {
+        if (nThreads == maxThreads) return maxThreads + 1;
+        return Math.min(2 * nThreads, maxThreads);
+    }
+
+    class Rollout extends Op {
+        Rollout(AbstractGameState root, long seed) {
+            super(root, seed);
+        }
+
+        void run() {
+            AbstractGameState state = root.copy();
+            for (int i = 0; i < rolloutSteps && !state.isTerminal(); i++) {
+                state = step(state);
+            }
+            scoreSink = state.getScore();
+            state.release();
+        }
+    }
+
+    private Result measure(String game, String benchmark, Op op) {
+        Result result = new Result();
+        result.game = game;
+        result.benchmark = benchmark;
+        result.threads = 1;
+        StatSummary rates = new StatSummary();
+        long ops = 0, ticks = 0, bytes = 0, nanos = 0;
+        for (int i = 0; i < warmupIterations + nIterations; i++) {
+            long ticks0 = op.ticks;
+            long bytes0 = allocatedBytes();
+            long t0 = System.nanoTime();
+            long n = iterate(op);
+            long t = System.nanoTime() - t0;
+            if (i < warmupIterations) continue;
+            rates.add(n * 1e9 / t);
+            ops += n;
+            ticks += op.ticks - ticks0;
+            bytes += allocatedBytes() - bytes0;
+            nanos += t;
+        }
+        result.opsPerSec = rates.mean();
+        result.stdErr = rates.stdErr();
+        result.ticksPerSec = ticks * 1e9 / nanos;
+        result.bytesPerOp = countsBytes ? bytes / (double) ops : Double.NaN;
+        result.bytesPerTick = countsBytes && ticks > 0 ? bytes / (double) ticks : Double.NaN;
+        return result;
+    }
+
+    private Result measureRollouts(String game, AbstractGameState start, int nThreads) {
+        if (nThreads == 1) return measure(game, "rollout", new Rollout(start.copy(), seed));
+
+        // each thread gets its own copy, made here
+        List<Op> ops = new ArrayList<>();
+        for (int i = 0; i < nThreads; i++) {
+            ops.add(new Rollout(start.copy(), seed + i));
+        }
+        ExecutorService pool = DaemonPool.newFixedPool(nThreads, "GameBenchmark");
+        CyclicBarrier barrier = new CyclicBarrier(nThreads);
+        StatSummary rates = new StatSummary();
+        long totalTicks = 0, nanos = 0;
+        try {
+            for (int i = 0; i < warmupIterations + nIterations; i++) {
+                List<Future<Long>> futures = new ArrayList<>();
+                long ticks0 = 0;
+                for (Op op : ops) ticks0 += op.ticks;
+                long t0 = System.nanoTime();
+                for (Op op : ops) {
+                    futures.add(pool.submit(() -> {
+                        barrier.await();
+                        return iterate(op);
+                    }));
+                }
+                long n = 0;
+                for (Future<Long> future : futures) {
+                    n += future.get();
+                }
+                long t = System.nanoTime() - t0;
+                if (i < warmupIterations) continue;
+                long ticks = -ticks0;
+                for (Op op : ops) ticks += op.ticks;
+                rates.add(n * 1e9 / t);
+                totalTicks += ticks;
+                nanos += t;
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Benchmark failed", e);
+        } finally {
+            pool.shutdown();
+        }
+        Result result = new Result();
+        result.game = game;
+        result.benchmark = "rollout";
+        result.threads = nThreads;
+        result.opsPerSec = rates.mean();
+        result.stdErr = rates.stdErr();
+        result.ticksPerSec = totalTicks * 1e9 / nanos;
+        // allocation is only measured on one thread
+        result.bytesPerOp = Double.NaN;
+        result.bytesPerTick = Double.NaN;
+        return result;
+    }
+
+    // runs the op until the iteration time is up, checking the clock in batches
+    private long iterate(Op op) {
+        long end = System.nanoTime() + iterationMillis * 1000000L;
+        long n = 0;
+        int batch = 1;
+        while (true) {
+            long t = System.nanoTime();
+            if (t >= end) return n;
+            for (int i = 0; i < batch; i++) op.run();
+            n += batch;
+            // grow the batch while it takes under a tenth of a millisecond
+            if (System.nanoTime() - t < 100000 && batch < 1 << 16) batch *= 2;
+        }
+    }
+
+    static boolean countsBytes = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean;
+
+    // bytes allocated so far by this thread, or 0 where the JVM cannot tell
+    private static long allocatedBytes() {
+        if (!countsBytes) return 0;
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
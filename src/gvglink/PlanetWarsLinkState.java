@@ -74,8 +74,12 @@ public class PlanetWarsLinkState
     public void advance(Types.ACTIONS[] actions) {
 
         // System.out.println(Arrays.toString(actions));
-        int[] a = new int[]{actions[0].ordinal(), actions[1].ordinal()};
-        state.next(a);
+        if (state instanceof GameState) {
+            ((GameState) state).step(actions[0].ordinal(), actions[1].ordinal());
+        } else {
+            int[] a = new int[]{actions[0].ordinal(), actions[1].ordinal()};
+            state.next(a);
+        }
         nTicks++;
     }
 
@@ -8,6 +8,7 @@ import ntuple.params.Report;
 import plot.LineChart;
 import plot.LineChartAxis;
 import plot.LineGroup;
+import utilities.DaemonPool;
 import utilities.ElapsedTimer;
 import utilities.JEasyFrame;
 import utilities.StatSummary;
@@ -15,7 +16,23 @@ import utilities.StatSummary;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.Arrays;
-
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.LongFunction;
+
+/**
+ * Runs nTrials independent trials of an EvoAlg on a fitness space, then
+ * nChecks evaluations of each trial's solution.
+ *
+ * Given factories rather than instances, runTrials makes a new EvoAlg and
+ * evaluator for each trial, and runs the trials, and their checks, in
+ * parallel (see setParallel).  Each trial is passed its own seed, seed + i,
+ * which the factories can use; the results, reports and plots are merged
+ * in trial order once the trials are done.
+ */
 public class HyperParamTuneRunner {
 
 
@@ -38,6 +55,34 @@ public class HyperParamTuneRunner {
 
     public boolean verbose = false;
 
+    // the seed for trial i is seed + i
+    public long seed = 0;
+
+    ExecutorService pool;
+    int nThreads = 1;
+
+    /**
+     * Trials from factories are run on nThreads threads;
+     * 1 or less runs them one at a time.
+     */
+    public HyperParamTuneRunner setParallel(int nThreads) {
+        shutdown();
+        this.nThreads = Math.max(1, nThreads);
+        pool = nThreads > 1 ? DaemonPool.newFixedPool(nThreads, "HyperParamTuneRunner") : null;
+        return this;
+    }
+
+    public HyperParamTuneRunner setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
+        pool = null;
+        nThreads = 1;
+    }
+
     public void runTrials(EvoAlg evoAlg, AnnotatedFitnessSpace annotatedFitnessSpace) {
         ElapsedTimer timer = new ElapsedTimer();
         StatSummary ss = new StatSummary("Overall results: " + evoAlg.getClass().getSimpleName());
@@ -72,31 +117,163 @@ public class HyperParamTuneRunner {
         System.out.println("Total time for experiment: " + timer);
     }
 
+    static class Trial {
+        int index;
+        long seed;
+        EvoAlg evoAlg;
+        AnnotatedFitnessSpace eval;
+        int[] solution;
+        // the sampled fitness, and the checked fitness of the best yet
+        ArrayList<Double> samples;
+        ArrayList<Double> bests;
+        long searchMillis;
+        List<Future<StatSummary>> checks = new ArrayList<>();
+        StatSummary checked = new StatSummary("Mean fitness");
+    }
+
+    /**
+     * Each trial gets a new EvoAlg and evaluator from the factories, called
+     * with the trial's seed; the checks use more evaluators from
+     * evalFactory, so that they too can run in parallel.
+     *
+     * The factories should pass the seed on to the Randoms of what they
+     * make (e.g. SimpleRMHC.setRandom); anything left on a shared static
+     * Random, such as the start states of most games, is drawn in thread
+     * order, and varies from one run to the next.  The checks' seeds follow
+     * on from the trials', so none is used twice.
+     */
+    public StatSummary runTrials(LongFunction<? extends EvoAlg> evoAlgFactory,
+                                 LongFunction<? extends AnnotatedFitnessSpace> evalFactory) {
+        ElapsedTimer timer = new ElapsedTimer();
+        List<Trial> trials = new ArrayList<>();
+        List<Future<Trial>> futures = new ArrayList<>();
+        for (int i = 0; i < nTrials; i++) {
+            Trial trial = new Trial();
+            trial.index = i;
+            trial.seed = seed + i;
+            trial.evoAlg = evoAlgFactory.apply(trial.seed);
+            trial.eval = evalFactory.apply(trial.seed);
+            trials.add(trial);
+            futures.add(submit(() -> runTrial(trial)));
+        }
+        String name = trials.isEmpty() ? "" : trials.get(0).evoAlg.getClass().getSimpleName();
+        StatSummary ss = new StatSummary("Overall results: " + name);
+
+        // the checks of each trial are queued as soon as its search is done,
+        // from this thread, so no pool thread ever waits on another
+        for (Trial trial : trials) {
+            try {
+                futures.get(trial.index).get();
+                int nChunks = Math.max(1, Math.min(nChecks, nThreads));
+                for (int k = 0; k < nChunks; k++) {
+                    int n = nChecks / nChunks + (k < nChecks % nChunks ? 1 : 0);
+                    long checkSeed = seed + nTrials + (long) trial.index * nChecks + k;
+                    trial.checks.add(submit(() -> check(evalFactory.apply(checkSeed), trial.solution, n)));
+                }
+            } catch (Exception e) {
+                System.out.println("Trial " + (trial.index + 1) + " failed");
+                e.printStackTrace();
+            }
+        }
+
+        for (Trial trial : trials) {
+            if (trial.checks.isEmpty()) continue;
+            try {
+                for (Future<StatSummary> check : trial.checks) {
+                    trial.checked.add(check.get());
+                }
+            } catch (Exception e) {
+                System.out.println("Checks for trial " + (trial.index + 1) + " failed");
+                e.printStackTrace();
+                continue;
+            }
+            System.out.println();
+            System.out.println("Trial: " + (trial.index + 1) + ", seed " + trial.seed + ", search time " + trial.searchMillis + " ms");
+            System.out.println("Solution: ");
+            System.out.println(Report.report(trial.eval, trial.solution));
+            System.out.println("Solution: " + Arrays.toString(trial.solution));
+            System.out.println(trial.checked);
+            ss.add(trial.checked.mean());
+            if (verbose) {
+                plotConvergence(trial.eval.logger(), trial.solution);
+                addFitnessEvolution(trial.samples, trial.bests);
+                if (trial.evoAlg instanceof NTupleBanditEA) {
+                    NTupleSystem nTupleSystem = ((NTupleSystem) ((NTupleBanditEA) trial.evoAlg).banditLandscapeModel);
+                    new NTupleSystemReport().setModel(nTupleSystem).printDetailedReport(trial.eval.getParams());
+                }
+            }
+        }
+
+        if (verbose) {
+            lineChart.addLineGroup(sampleEvolution);
+            if (plotChecks > 0) lineChart.addLineGroup(bestGuess);
+            new JEasyFrame(lineChart, "Sample Evolution");
+        }
+        System.out.println("nEvals per run: " + nEvals);
+        System.out.println(ss);
+        System.out.println("Total time for experiment: " + timer);
+        return ss;
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        if (pool != null) return pool.submit(task);
+        FutureTask<T> future = new FutureTask<>(task);
+        future.run();
+        return future;
+    }
+
+    private Trial runTrial(Trial trial) {
+        ElapsedTimer timer = new ElapsedTimer();
+        trial.eval.reset();
+        trial.solution = trial.evoAlg.runTrial(trial.eval, nEvals);
+        trial.searchMillis = timer.elapsed();
+        if (verbose) {
+            // the data for the plots is gathered here, in parallel, and
+            // only plotted once all the trials are done
+            trial.samples = trial.eval.logger().getFitnessArray();
+            trial.bests = checkBests(trial.eval.logger(), trial.eval, plotChecks);
+        }
+        return trial;
+    }
+
+    private static StatSummary check(AnnotatedFitnessSpace eval, int[] solution, int nChecks) {
+        StatSummary ss = new StatSummary();
+        for (int i = 0; i < nChecks; i++) {
+            ss.add(eval.evaluate(solution));
+        }
+        return ss;
+    }
+
     private void plotFitnessEvolution(EvolutionLogger logger, AnnotatedFitnessSpace eval, int plotChecks) {
         // the idea is to also add a new line group showing how the actual fitness evolved
         // versus the solutions that were sampled
         ArrayList<Double> data = new ArrayList<>();
-        data.addAll(logger.fa);
+        data.addAll(logger.getFitnessArray());
 //        System.out.println(data);
 //        System.out.println(data.size());
-        sampleEvolution.add(data);
+        addFitnessEvolution(data, checkBests(logger, eval, plotChecks));
+        // lineChart.addLine(new LinePlot().setData(data).setRandomColor());
+    }
 
+    private ArrayList<Double> checkBests(EvolutionLogger logger, AnnotatedFitnessSpace eval, int plotChecks) {
         ArrayList<Double> bests = new ArrayList<>();
         // now this will be slow, but for now just sample every now and then ...
-        for (int[] solution : logger.bestYetSolutions) {
+        for (int[] solution : logger.getBestYetSolutions()) {
 //            System.out.println(Arrays.toString(solution));
             StatSummary ss = new StatSummary();
             for (int i = 0; i < plotChecks; i++)
                 ss.add(eval.evaluate(solution));
             bests.add(ss.mean());
         }
+        return bests;
+    }
+
+    private void addFitnessEvolution(ArrayList<Double> data, ArrayList<Double> bests) {
+        sampleEvolution.add(data);
         if (plotChecks > 0) {
             System.out.println("Bests: " + bests);
             bestGuess.add(bests);
         }
-
-
-        // lineChart.addLine(new LinePlot().setData(data).setRandomColor());
     }
 
     private void plotConvergence(EvolutionLogger logger, int[] solution) {
@@ -112,7 +289,7 @@ public class HyperParamTuneRunner {
         ArrayList<Double> sampleCumulative = new ArrayList<>();
 
         StatSummary cumul = new StatSummary();
-        for (int[] best : logger.bestYetSolutions) {
+        for (int[] best : logger.getBestYetSolutions()) {
             double x = match(best, solution);
             bestMatches.add(x);
             cumul.add(x);
@@ -120,7 +297,7 @@ public class HyperParamTuneRunner {
         }
 
         StatSummary sample = new StatSummary();
-        for (int[] sol : logger.solutions) {
+        for (int[] sol : logger.getSolutions()) {
             double x = match(sol, solution);
             sampleMatches.add(x);
             sample.add(x);
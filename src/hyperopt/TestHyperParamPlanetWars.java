@@ -1,6 +1,5 @@
 package hyperopt;
 
-import evodef.AnnotatedFitnessSpace;
 import evodef.EvoAlg;
 // import ntuple.NTupleBanditEA;
 import ga.GridSearch;
@@ -8,8 +7,14 @@ import ga.SimpleRMHC;
 import ntbea.*;
 import planetwar.EvoAgentSearchSpacePlanetWars;
 import planetwar.GameState;
+import utilities.DaemonPool;
 import utilities.ElapsedTimer;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.LongFunction;
+
 public class TestHyperParamPlanetWars {
     public static void main(String[] args) {
         int nEvals = 288;
@@ -20,39 +25,28 @@ public class TestHyperParamPlanetWars {
 
         System.out.println("Optimization budget: " + nEvals);
 
-        NTupleBanditEA ntbea = new NTupleBanditEA().setKExplore(2);
-
-        NTupleSystem model = new NTupleSystem();
-        // set up a non-standard tuple pattern
-        model.use1Tuple = true;
-        model.use2Tuple = true;
-        model.useNTuple = false;
-
-        ntbea.setModel(model);
-
-
         // ntbea.getModel().s
         GameState.includeBuffersInScore = false;
 
         EvoAgentSearchSpacePlanetWars.tickBudget = 2000;
 
-        EvoAlg[] evoAlgs = {
-                new GridSearch(),
-                // new CompactSlidingGA(),
-                // new SlidingMeanEDA(),
-//                new SimpleGA(),
-//                new SimpleRMHC(1),
-//                new SimpleRMHC(2),
-//                 new SimpleRMHC(10),
-                // ntbea,
-        };
+        // each trial gets its own algorithm and evaluators, so the trials can run in parallel
+        Map<String, LongFunction<EvoAlg>> evoAlgs = new LinkedHashMap<>();
+        evoAlgs.put("GridSearch", seed -> new GridSearch());
+        // evoAlgs.put("CompactSlidingGA", seed -> new CompactSlidingGA());
+        // evoAlgs.put("SlidingMeanEDA", seed -> new SlidingMeanEDA());
+//        evoAlgs.put("SimpleGA", seed -> new SimpleGA());
+//        evoAlgs.put("SimpleRMHC(1)", seed -> new SimpleRMHC(1).setRandom(new Random(seed)));
+//        evoAlgs.put("SimpleRMHC(2)", seed -> new SimpleRMHC(2).setRandom(new Random(seed)));
+//         evoAlgs.put("SimpleRMHC(10)", seed -> new SimpleRMHC(10).setRandom(new Random(seed)));
+        // evoAlgs.put("NTBEA", TestHyperParamPlanetWars::ntbea);
 
         int nChecks = 30;
         int nTrials = 10;
 
         ElapsedTimer timer = new ElapsedTimer();
 
-        for (EvoAlg evoAlg : evoAlgs) {
+        for (Map.Entry<String, LongFunction<EvoAlg>> evoAlg : evoAlgs.entrySet()) {
 //            LineChart lineChart = new LineChart();
 //            lineChart.yAxis = new LineChartAxis(new double[]{-2, -1, 0, 1, 2});
 //            lineChart.setYLabel("Fitness");
@@ -65,10 +59,11 @@ public class TestHyperParamPlanetWars {
             runner.nTrials = nTrials;
             runner.nEvals = nEvals;
             runner.plotChecks = 0;
-            AnnotatedFitnessSpace testPlanetWars = new EvoAgentSearchSpacePlanetWars();
-            System.out.println("Testing: " + evoAlg);
-            runner.runTrials(evoAlg, testPlanetWars);
-            System.out.println("Finished testing: " + evoAlg);
+            runner.setParallel(DaemonPool.nCores());
+            System.out.println("Testing: " + evoAlg.getKey());
+            runner.runTrials(evoAlg.getValue(), seed -> new EvoAgentSearchSpacePlanetWars().setSeed(seed));
+            runner.shutdown();
+            System.out.println("Finished testing: " + evoAlg.getKey());
             // note, this is a bit of a hack: it only reports the final solution
             // System.out.println(new EvoAgentSearchSpacePlanetWars().report(runner.solution));
 
@@ -77,5 +72,18 @@ public class TestHyperParamPlanetWars {
         // System.out.println(ntbea.getModel().s);
         System.out.println("Time for all experiments: " + timer);
     }
+
+    static EvoAlg ntbea(long seed) {
+        NTupleBanditEA ntbea = new NTupleBanditEA().setKExplore(2).setRandom(new Random(seed));
+
+        NTupleSystem model = new NTupleSystem();
+        // set up a non-standard tuple pattern
+        model.use1Tuple = true;
+        model.use2Tuple = true;
+        model.useNTuple = false;
+
+        ntbea.setModel(model);
+        return ntbea;
+    }
 }
 
@@ -2,7 +2,11 @@ package ntbea;
 
 import evodef.*;
 import utilities.ElapsedTimer;
+import utilities.Metrics;
 import utilities.StatSummary;
+import utilities.TimeBudget;
+
+import java.util.Random;
 
 /**
  * Created by sml on 09/01/2017.
@@ -10,6 +14,10 @@ import utilities.StatSummary;
 
 public class NTupleBanditEA implements EvoAlg {
 
+    static final Metrics.Histogram evaluateTime = Metrics.histogram("ntbea.NTupleBanditEA.evaluate");
+    static final Metrics.Histogram modelUpdateTime = Metrics.histogram("ntbea.NTupleBanditEA.modelUpdate");
+    static final Metrics.Histogram neighboursTime = Metrics.histogram("ntbea.NTupleBanditEA.neighbours");
+
     // public NTupleSystem banditLandscapeModel;
     public BanditLandscapeModel banditLandscapeModel;
 
@@ -27,10 +35,17 @@ public class NTupleBanditEA implements EvoAlg {
     static double defaultEpsilon = 0.5;
     double epsilon = defaultEpsilon;
 
-    public int nSamples = 1;
+    Resampler resampler = Resampler.fixed(1);
+    // the best point sampled so far, which a racing resampler races each point against
+    Resampler.Incumbent incumbent;
 
     public void setSamplingRate(int n) {
-        nSamples = n;
+        resampler = Resampler.fixed(n);
+    }
+
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
     }
 
 
@@ -59,13 +74,7 @@ public class NTupleBanditEA implements EvoAlg {
     }
 
     StatSummary fitness(SolutionEvaluator evaluator, int[] sol) {
-        StatSummary ss = new StatSummary();
-        for (int i = 0; i < nSamples; i++) {
-            double fitness = evaluator.evaluate(sol);
-            ss.add(fitness);
-
-        }
-        return ss;
+        return resampler.race(evaluator, sol, incumbent);
     }
 
 
@@ -90,6 +99,22 @@ public class NTupleBanditEA implements EvoAlg {
 
     public boolean logBestYet = false;
 
+    TimeBudget timeBudget;
+
+    static Random sharedRandom = new Random();
+    Random random = sharedRandom;
+
+    // seeds the starting point and the mutations
+    public NTupleBanditEA setRandom(Random random) {
+        this.random = random;
+        return this;
+    }
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int nEvals) {
 
@@ -97,7 +122,7 @@ public class NTupleBanditEA implements EvoAlg {
         // set  up some convenient references
         SearchSpace searchSpace = evaluator.searchSpace();
         EvolutionLogger logger = evaluator.logger();
-        DefaultMutator mutator = new DefaultMutator(searchSpace);
+        DefaultMutator mutator = new DefaultMutator(searchSpace).setRandom(random);
         banditLandscapeModel.setSearchSpace(searchSpace);
 
         nNeighbours = (int) Math.min(nNeighbours, SearchSpaceUtil.size(searchSpace) / 4);
@@ -119,17 +144,18 @@ public class NTupleBanditEA implements EvoAlg {
         // create a neighbourhood set of points and pick the best one that combines it's exploitation and evaluation scores
 
         StatSummary ss = new StatSummary();
+        incumbent = new Resampler.Incumbent();
 
         int[] p;
         if (seed == null) {
-            p = SearchSpaceUtil.randomPoint(searchSpace);
+            p = SearchSpaceUtil.randomPoint(searchSpace, random);
         } else {
             p = seed;
         }
 
         // banditLandscapeModel.printDetailedReport();
 
-        while (evaluator.nEvals() < nEvals) {
+        while (evaluator.nEvals() < nEvals && (timeBudget == null || timeBudget.next())) {
 
             // each time around the loop we make one fitness evaluation of p
             // and add this NEW information to the memory
@@ -138,11 +164,9 @@ public class NTupleBanditEA implements EvoAlg {
             // the new version enables resampling
             double fitness;
 
-            if (nSamples == 1) {
-                fitness = evaluator.evaluate(p);
-            } else {
-                fitness = fitness(evaluator, p).mean();
-            }
+            long start = Metrics.start();
+            fitness = fitness(evaluator, p).mean();
+            evaluateTime.recordSince(start);
             // System.out.println();
 
             if (reportFrequency > 0 && evaluator.nEvals() % reportFrequency == 0) {
@@ -155,11 +179,14 @@ public class NTupleBanditEA implements EvoAlg {
 
             ElapsedTimer t = new ElapsedTimer();
 
+            start = Metrics.start();
             banditLandscapeModel.addPoint(p, fitness);
+            modelUpdateTime.recordSince(start);
 
             // ss.add(t.elapsed());
 //            System.out.println(ss);
 //            System.out.println("N Neighbours: " + nNeighbours);
+            start = Metrics.start();
             EvaluateChoices evc = new EvaluateChoices(banditLandscapeModel, kExplore);
             // evc.add(p);
 
@@ -172,6 +199,7 @@ public class NTupleBanditEA implements EvoAlg {
                 int[] pp = mutator.randMut(p);
                 evc.add(pp);
             }
+            neighboursTime.recordSince(start);
 
             // evc.report();
 
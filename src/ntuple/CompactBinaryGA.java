@@ -2,6 +2,7 @@ package ntuple;
 
 import evodef.*;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.Arrays;
 import java.util.Random;
@@ -26,7 +27,7 @@ public class CompactBinaryGA implements EvoAlg {
     public int nParents = 2;
 
 
-    int nSamples = 1;
+    Resampler resampler = Resampler.fixed(1);
     public static double defaultK = 2000;
     public double K = 10;
 
@@ -66,6 +67,13 @@ public class CompactBinaryGA implements EvoAlg {
     public Integer nToFlip = null; // 2;
 
 
+    TimeBudget timeBudget;
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int nEvals) {
         this.evaluator = evaluator;
@@ -82,7 +90,7 @@ public class CompactBinaryGA implements EvoAlg {
             pVec[i] = 0.5;
         }
 
-        while (evaluator.nEvals() < nEvals) {
+        while (evaluator.nEvals() < nEvals && (timeBudget == null || timeBudget.next())) {
 
             // each time around the loop we make one fitness evaluation of p
             // and add this NEW information to the memory
@@ -95,6 +103,8 @@ public class CompactBinaryGA implements EvoAlg {
 
             int prevEvals = evaluator.nEvals();
             ScoredVec[] vecs = new ScoredVec[nParents];
+            // a racing resampler races each vector against the best of this iteration
+            StatSummary best = null;
             for (int i=0; i<nParents; i++) {
                 // generate
                 int[] x;
@@ -103,8 +113,9 @@ public class CompactBinaryGA implements EvoAlg {
                 } else {
                     x = CompactGAUtil.randBitVec(pVec);
                 }
-                double f = fitness(evaluator, x, nSamples).mean(); // evaluator.evaluate(x);
-                ScoredVec sv = new ScoredVec(x, f);
+                StatSummary ss = fitness(evaluator, x, best);
+                if (best == null || ss.mean() > best.mean()) best = ss;
+                ScoredVec sv = new ScoredVec(x, ss.mean());
                 vecs[i] = sv;
             }
 
@@ -172,17 +183,16 @@ public class CompactBinaryGA implements EvoAlg {
     @Override
     public void setSamplingRate(int samplingRate) {
 
-        nSamples = samplingRate;
+        resampler = Resampler.fixed(samplingRate);
     }
 
-    static StatSummary fitness(SolutionEvaluator evaluator, int[] sol, int nSamples) {
-        StatSummary ss = new StatSummary();
-        for (int i=0; i<nSamples; i++) {
-            double fitness = evaluator.evaluate(sol);
-            ss.add(fitness);
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
+    }
 
-        }
-        return ss;
+    StatSummary fitness(SolutionEvaluator evaluator, int[] sol, StatSummary incumbent) {
+        return resampler.sample(evaluator, sol, incumbent);
     }
 
 
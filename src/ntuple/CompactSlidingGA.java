@@ -2,6 +2,7 @@ package ntuple;
 
 import evodef.*;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -52,7 +53,9 @@ public class CompactSlidingGA implements EvoAlg {
     public int historyLength = 20;
     ArrayList<ScoredVec> history;
 
-    int nSamples = 1;
+    Resampler resampler = Resampler.fixed(1);
+    // the best point sampled so far, which a racing resampler races each point against
+    Resampler.Incumbent incumbent;
     public static double defaultK = 2000;
     public double K = 10;
 
@@ -91,6 +94,13 @@ public class CompactSlidingGA implements EvoAlg {
         return this;
     }
 
+    TimeBudget timeBudget;
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int nEvals) {
         this.evaluator = evaluator;
@@ -110,7 +120,8 @@ public class CompactSlidingGA implements EvoAlg {
         ArrayList<Double> pVecEvo = new ArrayList<>();
 
         int nSteps = 0;
-        while (evaluator.nEvals() < nEvals) {
+        incumbent = new Resampler.Incumbent();
+        while (evaluator.nEvals() < nEvals && (timeBudget == null || timeBudget.next())) {
 
             // each time around the loop we make one fitness evaluation of p
             // and add this NEW information to the memory
@@ -126,7 +137,7 @@ public class CompactSlidingGA implements EvoAlg {
             } else {
                 x = CompactGAUtil.randBitVec(pVec);
             }
-            double f = fitness(evaluator, x, nSamples).mean();
+            double f = fitness(evaluator, x).mean();
 
             ScoredVec scoredVec = new ScoredVec(x, f);
 
@@ -252,17 +263,16 @@ public class CompactSlidingGA implements EvoAlg {
     @Override
     public void setSamplingRate(int samplingRate) {
 
-        nSamples = samplingRate;
+        resampler = Resampler.fixed(samplingRate);
     }
 
-    static StatSummary fitness(SolutionEvaluator evaluator, int[] sol, int nSamples) {
-        StatSummary ss = new StatSummary();
-        for (int i=0; i<nSamples; i++) {
-            double fitness = evaluator.evaluate(sol);
-            ss.add(fitness);
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
+    }
 
-        }
-        return ss;
+    StatSummary fitness(SolutionEvaluator evaluator, int[] sol) {
+        return resampler.race(evaluator, sol, incumbent);
     }
 
 
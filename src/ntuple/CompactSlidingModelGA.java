@@ -2,6 +2,7 @@ package ntuple;
 
 import evodef.*;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -31,7 +32,9 @@ public class CompactSlidingModelGA implements EvoAlg {
     public int historyLength = 50;
     ArrayList<ScoredVec> history;
 
-    int nSamples = 1;
+    Resampler resampler = Resampler.fixed(1);
+    // the best point sampled so far, which a racing resampler races each point against
+    Resampler.Incumbent incumbent;
     public static double defaultK = 2000;
     public double K = 10;
 
@@ -69,6 +72,13 @@ public class CompactSlidingModelGA implements EvoAlg {
     // also was worth a try, but works badly
     static double pArgMaxInjection = 0.0;
 
+    TimeBudget timeBudget;
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int nEvals) {
         this.evaluator = evaluator;
@@ -81,11 +91,13 @@ public class CompactSlidingModelGA implements EvoAlg {
         geneArrayModel = new GeneArrayModel(searchSpace);
 
         int nSteps = 0;
+        incumbent = new Resampler.Incumbent();
         Long endTime = null;
         if (timeLimit != null) {
             endTime = timeLimit + System.currentTimeMillis();
         }
-        while (evaluator.nEvals() < nEvals && (endTime == null || System.currentTimeMillis() < endTime)) {
+        while (evaluator.nEvals() < nEvals && (endTime == null || System.currentTimeMillis() < endTime)
+                && (timeBudget == null || timeBudget.next())) {
 
             // each time around the loop we make one fitness evaluation of p
             // and add this NEW information to the memory
@@ -102,7 +114,7 @@ public class CompactSlidingModelGA implements EvoAlg {
             } else {
                 x = geneArrayModel.generate();
             }
-            double f = fitness(evaluator, x, nSamples).mean();
+            double f = fitness(evaluator, x).mean();
 
             ScoredVec scoredVec = new ScoredVec(x, f);
 
@@ -181,18 +193,17 @@ public class CompactSlidingModelGA implements EvoAlg {
     @Override
     public void setSamplingRate(int samplingRate) {
 
-        nSamples = samplingRate;
+        resampler = Resampler.fixed(samplingRate);
     }
 
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
+    }
 
-    static StatSummary fitness(SolutionEvaluator evaluator, int[] sol, int nSamples) {
-        StatSummary ss = new StatSummary();
-        for (int i = 0; i < nSamples; i++) {
-            double fitness = evaluator.evaluate(sol);
-            ss.add(fitness);
 
-        }
-        return ss;
+    StatSummary fitness(SolutionEvaluator evaluator, int[] sol) {
+        return resampler.race(evaluator, sol, incumbent);
     }
 
 
@@ -195,6 +195,40 @@ public class NTuple {
         return nSamples;
     }
 
+    /**
+     * Adds in the statistics of a tuple over the next dimensions along,
+     * i.e. source.tuple[k] == tuple[k] + 1, for a sequence search space that
+     * has moved on by one position.  Each summary is decayed by the given
+     * factor first (see StatSummary.decay); those left empty are skipped.
+     */
+    public void shiftFrom(NTuple source, double decay) {
+        if (source.ntArray != null) {
+            for (int i = 0; i < source.ntArray.length; i++) {
+                if (source.ntArray[i] != null) shiftEntry(source, i, source.ntArray[i], decay);
+            }
+        } else {
+            for (Double key : source.ntMap.keySet()) {
+                shiftEntry(source, key, source.ntMap.get(key), decay);
+            }
+        }
+    }
+
+    private void shiftEntry(NTuple source, double address, StatSummary ss, double decay) {
+        StatSummary decayed = new StatSummary().add(ss).decay(decay);
+        if (decayed.n() == 0) return;
+        int[] x = new int[searchSpace.nDims()];
+        for (int k = 0; k < tuple.length; k++) {
+            int d = source.searchSpace.nValues(source.tuple[k]);
+            int v = (int) (address % d);
+            address = Math.floor(address / d);
+            // the value may not exist in the dimension it moves to
+            if (v >= searchSpace.nValues(tuple[k])) return;
+            x[tuple[k]] = v;
+        }
+        getStatsForceCreate(x).add(decayed);
+        nSamples += decayed.n();
+    }
+
     public double address(int[] x) {
 
         // iterate over each of the tuple's dimensions
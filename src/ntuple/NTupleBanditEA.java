@@ -3,7 +3,9 @@ package ntuple;
 import evodef.*;
 import evodef.DefaultMutator;
 import utilities.ElapsedTimer;
+import utilities.Metrics;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 /**
  * Created by sml on 09/01/2017.
@@ -11,6 +13,10 @@ import utilities.StatSummary;
 
 public class NTupleBanditEA implements EvoAlg {
 
+    static final Metrics.Histogram evaluateTime = Metrics.histogram("ntuple.NTupleBanditEA.evaluate");
+    static final Metrics.Histogram modelUpdateTime = Metrics.histogram("ntuple.NTupleBanditEA.modelUpdate");
+    static final Metrics.Histogram neighboursTime = Metrics.histogram("ntuple.NTupleBanditEA.neighbours");
+
     // public NTupleSystem banditLandscapeModel;
     public BanditLandscapeModel banditLandscapeModel;
 
@@ -26,10 +32,17 @@ public class NTupleBanditEA implements EvoAlg {
     // this param controls the size of the neighbourhood
     int neighboursWhenFindingBest = 10;
 
-    public int nSamples = 1;
+    Resampler resampler = Resampler.fixed(1);
+    // the best point sampled so far, which a racing resampler races each point against
+    Resampler.Incumbent incumbent;
 
     public void setSamplingRate(int n) {
-        nSamples = n;
+        resampler = Resampler.fixed(n);
+    }
+
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
     }
 
 
@@ -57,14 +70,18 @@ public class NTupleBanditEA implements EvoAlg {
         return this;
     }
 
-    StatSummary fitness(SolutionEvaluator evaluator, int[] sol) {
-        StatSummary ss = new StatSummary();
-        for (int i = 0; i < nSamples; i++) {
-            double fitness = evaluator.evaluate(sol);
-            ss.add(fitness);
+    // if set, runTrial carries on with the model left by the previous run
+    // (or given to setModel) instead of starting a new one, as long as the
+    // number of dimensions still matches
+    boolean keepModel = false;
 
-        }
-        return ss;
+    public NTupleBanditEA setKeepModel(boolean keepModel) {
+        this.keepModel = keepModel;
+        return this;
+    }
+
+    StatSummary fitness(SolutionEvaluator evaluator, int[] sol) {
+        return resampler.race(evaluator, sol, incumbent);
     }
 
 
@@ -80,6 +97,13 @@ public class NTupleBanditEA implements EvoAlg {
 
     int reportFrequency = 10000;
 
+    TimeBudget timeBudget;
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int nEvals) {
 
@@ -92,9 +116,12 @@ public class NTupleBanditEA implements EvoAlg {
         nNeighbours = (int) Math.min(nNeighbours, SearchSpaceUtil.size(searchSpace) / 4);
         System.out.println("Set neighbours to: " + nNeighbours);
 
-        // force creation
+        // force creation, unless keeping the model from one run to the next
 
-        banditLandscapeModel = null;
+        if (!keepModel || banditLandscapeModel == null ||
+                banditLandscapeModel.getSearchSpace().nDims() != searchSpace.nDims()) {
+            banditLandscapeModel = null;
+        }
         // create an NTuple fitness landscape model
         if (banditLandscapeModel == null) {
             System.out.println("Creating new model");
@@ -106,6 +133,7 @@ public class NTupleBanditEA implements EvoAlg {
         // create a neighbourhood set of points and pick the best one that combines it's exploitation and evaluation scores
 
         StatSummary ss = new StatSummary();
+        incumbent = new Resampler.Incumbent();
 
         int[] p;
         if (seed == null) {
@@ -116,7 +144,7 @@ public class NTupleBanditEA implements EvoAlg {
 
         // banditLandscapeModel.printDetailedReport();
 
-        while (evaluator.nEvals() < nEvals) {
+        while (evaluator.nEvals() < nEvals && (timeBudget == null || timeBudget.next())) {
 
             // each time around the loop we make one fitness evaluation of p
             // and add this NEW information to the memory
@@ -135,11 +163,9 @@ public class NTupleBanditEA implements EvoAlg {
             // the new version enables resampling
             double fitness;
 
-            if (nSamples == 1) {
-                fitness = evaluator.evaluate(p);
-            } else {
-                fitness = fitness(evaluator, p).mean();
-            }
+            long start = Metrics.start();
+            fitness = fitness(evaluator, p).mean();
+            evaluateTime.recordSince(start);
             // System.out.println();
 
             if (reportFrequency > 0 && evaluator.nEvals() % reportFrequency == 0) {
@@ -152,11 +178,14 @@ public class NTupleBanditEA implements EvoAlg {
 
             ElapsedTimer t = new ElapsedTimer();
 
+            start = Metrics.start();
             banditLandscapeModel.addPoint(p, fitness);
+            modelUpdateTime.recordSince(start);
 
             // ss.add(t.elapsed());
 //            System.out.println(ss);
 //            System.out.println("N Neighbours: " + nNeighbours);
+            start = Metrics.start();
             EvaluateChoices evc = new EvaluateChoices(banditLandscapeModel, kExplore);
             // evc.add(p);
 
@@ -169,6 +198,7 @@ public class NTupleBanditEA implements EvoAlg {
                 int[] pp = mutator.randMut(p);
                 evc.add(pp);
             }
+            neighboursTime.recordSince(start);
 
             // evc.report();
 
@@ -6,7 +6,9 @@ import utilities.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by simonmarklucas on 13/11/2016.
@@ -102,6 +104,36 @@ public class NTupleSystem implements BanditLandscapeModel {
         sampledPoints.add(p);
     }
 
+    /**
+     * Moves the model on by one position, for a search space of action
+     * sequences whose first action has just been played: the statistics of
+     * the tuple over dimensions d go to the tuple over dimensions d - 1, those
+     * involving dimension 0 are dropped, tuples involving the last dimension
+     * start empty, and every summary is decayed by the given factor so that
+     * it counts for less than the samples still to come.
+     *
+     * The sampled points are cleared; a caller that carries the best
+     * sequence over (shifted along in the same way) samples it again first.
+     */
+    public NTupleSystem shiftLeft(double decay) {
+        Map<String, NTuple> byDims = new HashMap<>();
+        for (NTuple tuple : tuples) {
+            byDims.put(Arrays.toString(tuple.tuple), tuple);
+        }
+        ArrayList<NTuple> shifted = new ArrayList<>();
+        for (NTuple tuple : tuples) {
+            NTuple next = new NTuple(searchSpace, tuple.tuple);
+            int[] from = new int[tuple.tuple.length];
+            for (int k = 0; k < from.length; k++) from[k] = tuple.tuple[k] + 1;
+            NTuple source = byDims.get(Arrays.toString(from));
+            if (source != null) next.shiftFrom(source, decay);
+            shifted.add(next);
+        }
+        tuples = shifted;
+        sampledPoints = new ArrayList<>();
+        return this;
+    }
+
     public void addSummary(int[] p, StatSummary ss) {
         for (NTuple tuple : tuples) {
             tuple.add(p, ss);
@@ -1,7 +1,9 @@
 package ntuple;
 
 import evodef.*;
+import utilities.Metrics;
 import utilities.StatSummary;
+import utilities.TimeBudget;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -32,7 +34,9 @@ public class SlidingMeanEDA implements EvoAlg {
     public int historyLength = 50;
     ArrayList<ScoredVec> history;
 
-    int nSamples = 1;
+    Resampler resampler = Resampler.fixed(1);
+    // the best point sampled so far, which a racing resampler races each point against
+    Resampler.Incumbent incumbent;
 
     boolean verbose = false;
 
@@ -50,11 +54,21 @@ public class SlidingMeanEDA implements EvoAlg {
 
     static Random random = new Random();
 
+    static final Metrics.Histogram evaluateTime = Metrics.histogram("SlidingMeanEDA.evaluate");
+    static final Metrics.Histogram modelUpdateTime = Metrics.histogram("SlidingMeanEDA.modelUpdate");
+
     public SlidingMeanEDA setHistoryLength(int historyLength) {
         this.historyLength = historyLength;
         return this;
     }
 
+    TimeBudget timeBudget;
+
+    @Override
+    public void setTimeBudget(TimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
     @Override
     public int[] runTrial(SolutionEvaluator evaluator, int nEvals) {
         this.evaluator = evaluator;
@@ -67,6 +81,7 @@ public class SlidingMeanEDA implements EvoAlg {
         geneArrayModel = new GeneArrayMeanModel(searchSpace);
 
         int nSteps = 0;
+        incumbent = new Resampler.Incumbent();
         Long endTime = null;
         if (timeLimit != null) {
             // endTime = timeLimit + System.currentTimeMillis();
@@ -74,20 +89,24 @@ public class SlidingMeanEDA implements EvoAlg {
         }
 //        while (evaluator.nEvals() < nEvals && (endTime == null || System.currentTimeMillis() < endTime)) {
 
-        while (evaluator.nEvals() < nEvals && (endTime == null || System.nanoTime() / 1000000 < endTime)) {
+        while (evaluator.nEvals() < nEvals && (endTime == null || System.nanoTime() / 1000000 < endTime)
+                && (timeBudget == null || timeBudget.next())) {
 
             int prevEvals = evaluator.nEvals();
 
             // each time around evaluate a single new individual: x
             // but occasionally have the possibility of sampling the best guess so far
             int[] x = geneArrayModel.generate();
-            double f = fitness(evaluator, x, nSamples).mean();
+            long start = Metrics.start();
+            double f = fitness(evaluator, x).mean();
+            evaluateTime.recordSince(start);
 
             ScoredVec scoredVec = new ScoredVec(x, f);
 
             // now treat the history like a circular buffer and update it
             // always add the ScoredVector in
 
+            start = Metrics.start();
             geneArrayModel.updateModelMean(scoredVec);
             // geneArrayModel.report();
             if (history.size() < historyLength) {
@@ -101,6 +120,7 @@ public class SlidingMeanEDA implements EvoAlg {
                 history.set(ix, scoredVec);
             }
             nSteps++;
+            modelUpdateTime.recordSince(start);
 
             int diffEvals = evaluator.nEvals() - prevEvals;
             for (int i=0; i<diffEvals; i++) {
@@ -154,17 +174,16 @@ public class SlidingMeanEDA implements EvoAlg {
     @Override
     public void setSamplingRate(int samplingRate) {
 
-        nSamples = samplingRate;
+        resampler = Resampler.fixed(samplingRate);
     }
 
-    static StatSummary fitness(SolutionEvaluator evaluator, int[] sol, int nSamples) {
-        StatSummary ss = new StatSummary();
-        for (int i=0; i<nSamples; i++) {
-            double fitness = evaluator.evaluate(sol);
-            ss.add(fitness);
+    @Override
+    public void setSamplingRate(Resampler resampler) {
+        this.resampler = resampler;
+    }
 
-        }
-        return ss;
+    StatSummary fitness(SolutionEvaluator evaluator, int[] sol) {
+        return resampler.race(evaluator, sol, incumbent);
     }
 
 
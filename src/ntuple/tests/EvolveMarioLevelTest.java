@@ -117,7 +117,7 @@ public class EvolveMarioLevelTest implements EvolutionListener {
         String label = String.format("Fitness: %.6f", fitness);
 
         // solution = flatten(toRect())
-        plotData(evaluator.logger().fa);
+        plotData(evaluator.logger().getFitnessArray());
         LevelView.showMaze(solution, imageWidth, imageHeight, label, tileColors);
 
         // showSamples(sample, evaluator);
@@ -50,7 +50,7 @@ public class EvolvePatternTest {
         System.out.println(label);
         System.out.println(Arrays.toString(solution));
         LevelView.showMaze(solution, imageWidth, imageHeight, label);
-        new JEasyFrame(LineChart.easyPlot(evaluator.logger().fa), "Evolution of Fitness");
+        new JEasyFrame(LineChart.easyPlot(evaluator.logger().getFitnessArray()), "Evolution of Fitness");
         return fitness;
     }
 
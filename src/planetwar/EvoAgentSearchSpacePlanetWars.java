@@ -10,6 +10,8 @@ import ntuple.params.DoubleParam;
 import ntuple.params.IntegerParam;
 import ntuple.params.Param;
 
+import java.util.Random;
+
 public class EvoAgentSearchSpacePlanetWars implements AnnotatedFitnessSpace {
 
     public static void main(String[] args) {
@@ -65,6 +67,14 @@ public class EvoAgentSearchSpacePlanetWars implements AnnotatedFitnessSpace {
         this.logger = new EvolutionLogger();
     }
 
+    // seeds the agents of each game played; the start states still come from GameState.random
+    Random random = new Random();
+
+    public EvoAgentSearchSpacePlanetWars setSeed(long seed) {
+        random = new Random(seed);
+        return this;
+    }
+
     public String report(int[] solution) {
         StringBuilder sb = new StringBuilder();
         sb.append(String.format("pointMutationRate:     %.2f\n", pointMutationRate[solution[pointMutationRateIndex]]));
@@ -121,16 +131,19 @@ public class EvoAgentSearchSpacePlanetWars implements AnnotatedFitnessSpace {
         mutator.pointProb = pointMutationRate[x[pointMutationRateIndex]];
         mutator.flipAtLeastOneValue = flipAtLeastOneBit[x[flipAtLeastOneBitIndex]];
         mutator.totalRandomChaosMutation = false;
+        mutator.setRandom(new Random(random.nextLong()));
 
         SimpleRMHC simpleRMHC = new SimpleRMHC();
         simpleRMHC.setSamplingRate(nResamples[x[nResamplesIndex]]);
         simpleRMHC.setMutator(mutator);
+        simpleRMHC.setRandom(new Random(random.nextLong()));
 
         EvoAgent evoAgent = new EvoAgent().setEvoAlg(simpleRMHC, getNEvals(x));
         evoAgent.setUseShiftBuffer(useShiftBuffer[x[useShiftBufferIndex]]);
         evoAgent.setSequenceLength(seqLength[x[seqLengthIndex]]);
+        evoAgent.setRandom(new Random(random.nextLong()));
 
-        EvoAlg evoAlgOpponent = new SimpleRMHC();
+        EvoAlg evoAlgOpponent = new SimpleRMHC().setRandom(new Random(random.nextLong()));
 
         // set up some defaults for opponent
 
@@ -143,6 +156,7 @@ public class EvoAgentSearchSpacePlanetWars implements AnnotatedFitnessSpace {
 
         // setting to false provides a much weaker opponent
         evoOpponent.setUseShiftBuffer(true);
+        evoOpponent.setRandom(new Random(random.nextLong()));
 
         // now run a game and return the result
 
@@ -67,8 +67,7 @@ public class EvoSequenceTest {
         PlanetWarView view = new PlanetWarView(game);
         JEasyFrame frame = new JEasyFrame(view, "Sequence View: " + Arrays.toString(seq));
         for (int x : seq) {
-            int[] a = new int[]{x, GameState.doNothing};
-            game.next(a);
+            game.step(x, GameState.doNothing);
             view.update(game);
             Thread.sleep(100);
         }
@@ -1,11 +1,13 @@
 package planetwar;
 
-import ggi.core.AbstractGameState;
+import ggi.core.HashableGameState;
 import utilities.ElapsedTimer;
+import utilities.Metrics;
 import utilities.StatSummary;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * This is a simple Game State class for an abstract version of planet wars,
@@ -41,7 +43,10 @@ import java.util.Random;
  */
 
 
-public class GameState implements AbstractGameState {
+public class GameState implements HashableGameState {
+
+    static final Metrics.Counter copies = Metrics.counter("PlanetWars.copy");
+    static final Metrics.Counter ticks = Metrics.counter("PlanetWars.tick");
 
     public static Random random = new Random();
 
@@ -95,8 +100,7 @@ public class GameState implements AbstractGameState {
             int a2 = random.nextInt(GameState.nActions);
 //            a1 = AsteroidsGameState.doNothing;
 //            a2 = AsteroidsGameState.doNothing;
-            int[] actions = new int[]{a1, a2};
-            gameState.next(actions);
+            gameState.step(a1, a2);
             // gameState.update();
             // gameState = gameState.copy();
             if (gameState.isTerminal()) {
@@ -116,6 +120,7 @@ public class GameState implements AbstractGameState {
         this.nPlanets = nPlanets;
         focii[0] = 0;
         focii[1] = nPlanets / 2;
+        hashValid = false;
         return this;
     }
 
@@ -130,8 +135,10 @@ public class GameState implements AbstractGameState {
 
     @Override
     public GameState copy() {
+        copies.inc();
         GameState gs = new GameState();
         gs.nPlanets = this.nPlanets;
+        gs.nTicks = this.nTicks;
         gs.growthRates = this.growthRates;
         gs.planets = new double[nPlanets];
         for (int i = 0; i < nPlanets; i++) {
@@ -143,9 +150,34 @@ public class GameState implements AbstractGameState {
         gs.buffers[0] = this.buffers[0];
         gs.buffers[1] = this.buffers[1];
 
+        gs.hash = this.hash;
+        gs.hashValid = this.hashValid;
+
         return gs;
     }
 
+    /**
+     * In-place version of copy(): overwrites this state with the contents
+     * of the other one, reusing this state's arrays where possible.
+     */
+    public GameState copyFrom(GameState other) {
+        copies.inc();
+        nPlanets = other.nPlanets;
+        nTicks = other.nTicks;
+        growthRates = other.growthRates;
+        if (planets == null || planets.length != other.planets.length) {
+            planets = new double[other.planets.length];
+        }
+        System.arraycopy(other.planets, 0, planets, 0, planets.length);
+        focii[0] = other.focii[0];
+        focii[1] = other.focii[1];
+        buffers[0] = other.buffers[0];
+        buffers[1] = other.buffers[1];
+        hash = other.hash;
+        hashValid = other.hashValid;
+        return this;
+    }
+
     public GameState setRandomGrowthRates() {
         growthRates = new double[nPlanets];
         for (int i = 0; i < nPlanets; i++) {
@@ -173,6 +205,7 @@ public class GameState implements AbstractGameState {
             planets[i] = random.nextInt(3) - 1;
             // System.out.println(planets[i]);
         }
+        hashValid = false;
         return this;
     }
 
@@ -184,6 +217,7 @@ public class GameState implements AbstractGameState {
 
             // System.out.println(planets[i]);
         }
+        hashValid = false;
         return this;
     }
 
@@ -199,7 +233,78 @@ public class GameState implements AbstractGameState {
 
     double[] buffers;
 
+    // Zobrist hash of planets, focii and buffers.  Focus positions use a
+    // classic table of random keys; ship counts are continuous, so their
+    // keys are mixed with the bits of the value instead.  Every tick
+    // changes the ships on every owned planet, so keeping the hash up to
+    // date move by move would cost as much as recomputing it: instead it
+    // is recomputed when asked for after a change, and copied with the
+    // state.  Growth rates are fixed for a game and not hashed.
+    long hash;
+    boolean hashValid;
+
+    // the per-planet key tables, replaced as a whole when a state with
+    // more planets needs longer ones, so hash() can read them unlocked
+    static class Keys {
+        final long[] planet;
+        final long[][] focus;
+
+        Keys(long[] planet, long[] focus0, long[] focus1) {
+            this.planet = planet;
+            this.focus = new long[][]{focus0, focus1};
+        }
+    }
+
+    static volatile Keys keys = new Keys(new long[0], new long[0], new long[0]);
+    static final long[] bufferKeys = new long[2];
+
+    static {
+        SplittableRandom keyGen = new SplittableRandom(0x5eed);
+        bufferKeys[0] = keyGen.nextLong();
+        bufferKeys[1] = keyGen.nextLong();
+    }
+
+    static synchronized Keys ensureKeys(int n) {
+        Keys old = keys;
+        if (old.planet.length >= n) return old;
+        // keys for the first planets never change as the tables grow
+        SplittableRandom keyGen = new SplittableRandom(0x5eed + n);
+        long[] pk = Arrays.copyOf(old.planet, n);
+        long[] fk0 = Arrays.copyOf(old.focus[0], n);
+        long[] fk1 = Arrays.copyOf(old.focus[1], n);
+        for (int i = old.planet.length; i < n; i++) {
+            pk[i] = keyGen.nextLong();
+            fk0[i] = keyGen.nextLong();
+            fk1[i] = keyGen.nextLong();
+        }
+        keys = new Keys(pk, fk0, fk1);
+        return keys;
+    }
+
+    static long valueKey(long key, double x) {
+        // adding 0.0 maps -0.0 to 0.0, so equal values hash the same
+        long h = (Double.doubleToRawLongBits(x + 0.0) ^ key) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    public long hash() {
+        if (!hashValid) {
+            Keys k = keys;
+            int n = Math.max(nPlanets, planets.length);
+            if (k.planet.length < n) k = ensureKeys(n);
+            long h = k.focus[0][focii[0]] ^ k.focus[1][focii[1]]
+                    ^ valueKey(bufferKeys[0], buffers[0]) ^ valueKey(bufferKeys[1], buffers[1]);
+            for (int i = 0; i < planets.length; i++) {
+                h ^= valueKey(k.planet[i], planets[i]);
+            }
+            hash = h;
+            hashValid = true;
+        }
+        return hash;
+    }
+
     public GameState update() {
+        ticks.inc();
         for (int i = 0; i < nPlanets; i++) {
             if (planets[i] > 0) {
                 planets[i] += growthRates[i];
@@ -209,6 +314,7 @@ public class GameState implements AbstractGameState {
             }
         }
         nTicks++;
+        hashValid = false;
         return this;
     }
 
@@ -220,8 +326,17 @@ public class GameState implements AbstractGameState {
 
         // very easy - just put in a switch statement for each one?
 
-        next(actions[0], 0);
-        next(actions[1], 1);
+        return step(actions[0], actions[1]);
+    }
+
+    /**
+     * Primitive version of next(int[]) that avoids building an action array
+     * per tick: applies a1 for player one, a2 for player two, then updates.
+     * (next(int, int) is already taken by the single player move.)
+     */
+    public GameState step(int a1, int a2) {
+        next(a1, 0);
+        next(a2, 1);
 
         // then update
         update();
@@ -229,6 +344,34 @@ public class GameState implements AbstractGameState {
         return this;
     }
 
+    /**
+     * Plays seq for playerId against opponentSeq (doNothing if null) starting
+     * from this state, using scratch as the working state so that no copy is
+     * allocated.  Returns the discounted sum of score changes from playerId's
+     * point of view; a discount factor of 1 gives the plain score difference.
+     * Like a loop over next(), play goes on past a terminal state.
+     */
+    public double rollout(GameState scratch, int[] seq, int[] opponentSeq,
+                          int playerId, double discountFactor) {
+        scratch.copyFrom(this);
+        double currentScore = scratch.getScore();
+        double delta = 0;
+        double discount = 1;
+        for (int i = 0; i < seq.length; i++) {
+            int opAction = opponentSeq == null ? doNothing : opponentSeq[i % opponentSeq.length];
+            if (playerId == 0) {
+                scratch.step(seq[i], opAction);
+            } else {
+                scratch.step(opAction, seq[i]);
+            }
+            double nextScore = scratch.getScore();
+            delta += (nextScore - currentScore) * discount;
+            currentScore = nextScore;
+            discount *= discountFactor;
+        }
+        return playerId == 0 ? delta : -delta;
+    }
+
     int limit(int x) {
         if (x < 0) return 0;
         if (x > nPlanets - 1) x = nPlanets - 1;
@@ -236,6 +379,7 @@ public class GameState implements AbstractGameState {
     }
 
     public GameState next(int action, int playerId) {
+        hashValid = false;
         switch (action) {
             case incFocus: {
                 focii[playerId] = focii[playerId] + 1;
@@ -322,11 +466,14 @@ public class GameState implements AbstractGameState {
         // should do a better check really, but for now just return false
 
         if (terminateIfDominate) {
-            StatSummary ss = new StatSummary();
+            // same test as StatSummary min > 0 || max < 0, without the allocation
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
             for (double x : planets) {
-                ss.add(x);
+                if (x < min) min = x;
+                if (x > max) max = x;
             }
-            return ss.min() > 0 || ss.max() < 0;
+            return min > 0 || max < 0;
         } else {
             return false;
         }
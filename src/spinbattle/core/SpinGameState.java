@@ -5,19 +5,24 @@ import logger.sample.DefaultLogger;
 import spinbattle.actuator.Actuator;
 import spinbattle.params.Constants;
 import spinbattle.params.SpinBattleParams;
+import utilities.Metrics;
 
 import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 public class SpinGameState implements AbstractGameState {
 
     // this tracks all calls to the next method
-    // useful for calculating overall stats
+    // useful for calculating overall stats; adders, as games may be played on many threads
 
-    public static int totalTicks = 0;
-    public static int totalInstances = 0;
+    public static final LongAdder totalTicks = new LongAdder();
+    public static final LongAdder totalInstances = new LongAdder();
+
+    static final Metrics.Counter copies = Metrics.counter("SpinBattle.copy");
+    static final Metrics.Counter ticks = Metrics.counter("SpinBattle.tick");
 
     public SpinGameState() {
-        totalInstances++;
+        totalInstances.increment();
     }
 
     // number of ticks made by this instance
@@ -41,6 +46,7 @@ public class SpinGameState implements AbstractGameState {
 
     @Override
     public AbstractGameState copy() {
+        copies.inc();
         SpinGameState copy = new SpinGameState();
         // just shallow-copy the params
         copy.params = params;
@@ -72,7 +78,8 @@ public class SpinGameState implements AbstractGameState {
             p.update(this);
         }
         nTicks++;
-        totalTicks++;
+        totalTicks.increment();
+        ticks.inc();
         return this;
     }
 
@@ -21,10 +21,12 @@ public class SpinGameStateFactory implements AbstractGameFactory {
     public AbstractGameState newGame() {
         // params.transitSpeed = 0;
         SpinGameState gameState = new SpinGameState().setParams(params).setPlanets();
+        // a new array for each game, so that games in play at the same time
+        // do not share actuators
+        actuators = new Actuator[2];
         actuators[0] = new SourceTargetActuator().setPlayerId(0);
         actuators[1] = new SourceTargetActuator().setPlayerId(1);
         gameState.actuators = actuators;
-        // actuators = new Actuator[2];
         // System.out.println("Actuators: " + actuators);
         return gameState;
     }
@@ -12,9 +12,11 @@ import spinbattle.core.SpinGameStateFactory;
 import spinbattle.params.Constants;
 import spinbattle.test.MCTSAgentTest;
 import spinbattle.view.VisualSpinGameRunner;
+import utilities.DaemonPool;
 import utilities.ElapsedTimer;
 
 import java.util.ArrayList;
+import java.util.function.Supplier;
 
 /**
  *  Should move this later to the the ggi package ...
@@ -47,23 +49,25 @@ public class RoundRobinLeagueTest {
 
 
         int seqLength = 100;
-        SimpleEvoAgent simpleEvoAgentDoNothingModel = new SimpleEvoAgent().setOpponent(new DoNothingAgent()).setSequenceLength(seqLength);
-        SimpleEvoAgent simpleEvoAgentRandomModel = new SimpleEvoAgent().setOpponent(new RandomAgent()).setSequenceLength(seqLength);
         // simpleEvoAgent.setOpponent(new RandomAgent());
         // SimplePlayerInterface p5 = simpleEvoAgent;
 
-        ArrayList<SimplePlayerInterface> players = new ArrayList<>();
+        // factories rather than players, so that every game gets its own
+        // players and the games can be played in parallel
+        ArrayList<Supplier<? extends SimplePlayerInterface>> players = new ArrayList<>();
         // players.add(p1);
         // players.add(p2);
         // players.add(p3);
         // players.add(p4);
         // players.add(p5);
 
-        players.add(simpleEvoAgentDoNothingModel);
-        players.add(simpleEvoAgentRandomModel);
-        players.add(randomAgent);
+        players.add(() -> new SimpleEvoAgent().setOpponent(new DoNothingAgent()).setSequenceLength(seqLength));
+        players.add(() -> new SimpleEvoAgent().setOpponent(new RandomAgent()).setSequenceLength(seqLength));
+        players.add(RandomAgent::new);
 
-        RoundRobinLeague league = new RoundRobinLeague().setPlayers(players);
+        RoundRobinLeague league = new RoundRobinLeague().setPlayerFactories(players);
+        league.setParallel(DaemonPool.nCores());
+        league.plotScores = visual;
         // league.abstractVisualRunner = new VisualSpinGameRunner();
 
         GameRunnerTwoPlayer gameRunner = new GameRunnerTwoPlayer();
@@ -73,6 +77,7 @@ public class RoundRobinLeagueTest {
         league.gameRunner = gameRunner;
 
         league.playGames(gamesPerMatch);
+        league.shutdown();
 
         System.out.println(league);
 
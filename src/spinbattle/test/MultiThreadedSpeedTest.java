@@ -22,7 +22,7 @@ public class MultiThreadedSpeedTest extends Thread {
         }
         long elapsed = t.elapsed();
         System.out.println(t);
-        System.out.format("%.0fk ticks / s\n ", SpinGameState.totalTicks * 1.0 / elapsed);
+        System.out.format("%.0fk ticks / s\n ", SpinGameState.totalTicks.sum() * 1.0 / elapsed);
     }
 
     private MultiThreadedSpeedTest () {
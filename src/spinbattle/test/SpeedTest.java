@@ -43,10 +43,10 @@ public class SpeedTest {
         System.out.println();
         System.out.println("nWins for Player One: " + nWins);
         System.out.println("nHead (forcomparison) " + nRand);
-        System.out.println("Total game ticks: " + SpinGameState.totalTicks);
-        System.out.println("Total game states made: " + SpinGameState.totalInstances);
+        System.out.println("Total game ticks: " + SpinGameState.totalTicks.sum());
+        System.out.println("Total game states made: " + SpinGameState.totalInstances.sum());
 
-        System.out.format("%.0fk ticks / s\n ", SpinGameState.totalTicks * 1.0 / elapsed);
+        System.out.format("%.0fk ticks / s\n ", SpinGameState.totalTicks.sum() * 1.0 / elapsed);
 
     }
 
@@ -2,64 +2,109 @@ package threads;
 
 import ggi.core.AbstractGameState;
 import ggi.core.SimplePlayerInterface;
+import utilities.DaemonPool;
 
-public class AgentThread extends Thread implements SimplePlayerInterface {
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-    public AgentThread() {
-        start();
-    }
-
-    public void run() {
-        // keep waiting for a new gameState to be passed in
-        // this loop runs in this object's thread
-        while (true) {
-            if (thinking) {
-                // call the getAction method
-                action = player.getAction(gameState, playerId);
-            }
-        }
-    }
+/**
+ * Runs a player on a thread of its own, idle unless the player is thinking.
+ *
+ * requestAction hands the player a state and returns at once with a future
+ * for its action; if a deadline is set the future completes with the
+ * fallback action when the deadline passes first.  A player that overruns
+ * carries on in the background, and the next request waits behind it, as
+ * a player is never called from two threads at once; a request that is
+ * still waiting when a newer one is made is dropped, with the fallback
+ * action, so an overrun never builds up a queue.  So a request can be
+ * made early, for instance while the opponent is still choosing its move,
+ * and collected later.  getAction is the blocking form, so an AgentThread
+ * can stand in for its player anywhere.
+ */
+public class AgentThread implements SimplePlayerInterface {
 
     SimplePlayerInterface player;
-    AbstractGameState gameState;
-    Integer action;
-    boolean thinking = false;
-    int playerId;
+    ExecutorService executor = DaemonPool.newFixedPool(1, "AgentThread");
+
+    // 0 or less waits for the player however long it takes
+    long deadlineMillis = 0;
+    int fallbackAction = 0;
+
+    volatile Integer latestAction;
+    public final AtomicInteger nTimeouts = new AtomicInteger();
+    public final AtomicInteger nDropped = new AtomicInteger();
+    final AtomicLong nRequests = new AtomicLong();
 
     public AgentThread setPlayer(SimplePlayerInterface player) {
         this.player = player;
         return this;
     }
 
-    public AgentThread requestAction(AbstractGameState gameState, int playerId,  int delay) {
-        this.gameState = gameState;
-        thinking = true;
-        this.playerId = playerId;
-        // action = null;
+    public AgentThread setDeadline(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
         return this;
     }
 
+    public AgentThread setFallbackAction(int fallbackAction) {
+        this.fallbackAction = fallbackAction;
+        return this;
+    }
+
+    /**
+     * The state must not be changed by the caller until the player has
+     * finished with it; pass a copy.
+     */
+    public CompletableFuture<Integer> requestAction(AbstractGameState gameState, int playerId) {
+        SimplePlayerInterface player = this.player;
+        int fallback = fallbackAction;
+        long request = nRequests.incrementAndGet();
+        CompletableFuture<Integer> thinking = CompletableFuture.supplyAsync(() -> {
+            if (request != nRequests.get()) {
+                nDropped.incrementAndGet();
+                return fallback;
+            }
+            int action = player.getAction(gameState, playerId);
+            latestAction = action;
+            return action;
+        }, executor);
+        if (deadlineMillis <= 0) return thinking;
+
+        return thinking.copy().orTimeout(deadlineMillis, TimeUnit.MILLISECONDS).exceptionally(e -> {
+            if (e instanceof TimeoutException) {
+                nTimeouts.incrementAndGet();
+                return fallback;
+            }
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        });
+    }
+
+    // the action the player chose most recently, whether or not in time
     public Integer getLatestAction() {
-        // obviously this always return immediately
-        return action;
+        return latestAction;
     }
 
     @Override
     public int getAction(AbstractGameState gameState, int playerId) {
-        // this loop runs in the caller's thread
-        this.gameState = gameState;
-        action = null;
-
-        while (action == null)  {
-
-        }
-        return 0;
+        return requestAction(gameState, playerId).join();
     }
 
     @Override
     public SimplePlayerInterface reset() {
-        player.reset();
+        // on the player's own thread, after anything it is still working on
+        CompletableFuture.runAsync(player::reset, executor).join();
         return this;
     }
 
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public String toString() {
+        return "Thread: " + player;
+    }
 }
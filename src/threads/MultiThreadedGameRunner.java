@@ -7,8 +7,14 @@ import ggi.core.SimplePlayerInterface;
 import planetwar.GameLog;
 import utilities.StatSummary;
 
-import java.util.ArrayList;
-
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Plays games with each player on its own AgentThread.  Both players are
+ * asked for their move at the same time and think in parallel, and with
+ * a deadline set a player that has not answered in time plays the
+ * fallback action instead (see AgentThread).
+ */
 public class MultiThreadedGameRunner {
 
     int nSteps = 100;
@@ -23,6 +29,27 @@ public class MultiThreadedGameRunner {
     public static int p1Index = 0;
     public static int p2Index = 1;
 
+    public AgentThread[] agents = {new AgentThread(), new AgentThread()};
+
+    public MultiThreadedGameRunner() {
+        reset();
+    }
+
+    // per move; 0 or less waits for the players however long they take
+    public MultiThreadedGameRunner setDeadline(long deadlineMillis) {
+        for (AgentThread agent : agents) agent.setDeadline(deadlineMillis);
+        return this;
+    }
+
+    public MultiThreadedGameRunner setFallbackAction(int fallbackAction) {
+        for (AgentThread agent : agents) agent.setFallbackAction(fallbackAction);
+        return this;
+    }
+
+    public void shutdown() {
+        for (AgentThread agent : agents) agent.shutdown();
+    }
+
     public void reset() {
         scores = new StatSummary("Game score stats");
         nGames = 0;
@@ -51,8 +78,8 @@ public class MultiThreadedGameRunner {
         GameLog gameLog = new GameLog();
         gameLog.addScore(gameState.getScore());
 
-        p1.reset();
-        p2.reset();
+        agents[p1Index].setPlayer(p1).reset();
+        agents[p2Index].setPlayer(p2).reset();
 
         // this is an interesting problem to solve
         // how to provide logging of game-specific values within
@@ -60,11 +87,12 @@ public class MultiThreadedGameRunner {
         // gameLog.setInitialGrowthRate(gameState.totalGrowthRate());
         int[] actions = new int[2];
         for (int i=0; i<nSteps && !gameState.isTerminal(); i++) {
-            actions[0] = p1.getAction(gameState.copy(), p1Index);
-            actions[1] = p2.getAction(gameState.copy(), p2Index);
+            CompletableFuture<Integer> a1 = agents[p1Index].requestAction(gameState.copy(), p1Index);
+            CompletableFuture<Integer> a2 = agents[p2Index].requestAction(gameState.copy(), p2Index);
+            actions[0] = a1.join();
+            actions[1] = a2.join();
             gameState.next(actions);
             gameLog.addScore(gameState.getScore());
-            delay();
         }
         scores.add(gameState.getScore());
 
@@ -77,13 +105,4 @@ public class MultiThreadedGameRunner {
     }
 
 
-    int delayMillis = 40;
-    private void delay() {
-        try {
-            Thread.sleep(delayMillis);
-        } catch (Exception e) {}
-    }
-
-
-
 }
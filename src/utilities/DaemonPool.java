@@ -0,0 +1,43 @@
+package utilities;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed size thread pools made of daemon threads, so that an agent or
+ * runner that owns a pool never stops the JVM from exiting when main()
+ * returns without an explicit shutdown.
+ *
+ * Agents that a framework creates for every game, and never tells when
+ * the game is over, should use the shared pool instead of owning one.
+ */
+public class DaemonPool {
+
+    private static ExecutorService shared;
+
+    // one pool for the whole JVM, never shut down; it makes threads as
+    // they are needed and lets them go after a minute without work
+    public static synchronized ExecutorService shared() {
+        if (shared == null) shared = Executors.newCachedThreadPool(factory("DaemonPool"));
+        return shared;
+    }
+
+    public static ExecutorService newFixedPool(int nThreads, String name) {
+        return Executors.newFixedThreadPool(nThreads, factory(name));
+    }
+
+    public static ThreadFactory factory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    public static int nCores() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,227 @@
+package utilities;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A registry of named counters and histograms, for seeing where the time
+ * goes in a long run.  Nothing is recorded unless enabled is set, and a
+ * disabled metric costs one read of that flag; enabled, the counts are
+ * striped (LongAdder), so threads seldom contend.
+ *
+ * Classes hold their metrics in static fields, made once by name:
+ *
+ *   static final Metrics.Counter ticks = Metrics.counter("SpinBattle.tick");
+ *   static final Metrics.Histogram evalTime = Metrics.histogram("SimpleRMHC.evaluate");
+ *
+ *   ticks.inc();
+ *   long t = Metrics.start();
+ *   ...
+ *   evalTime.recordSince(t);
+ *
+ * A class whose simple name is shared with another puts its package in
+ * front, as in ntbea.NTupleBanditEA.evaluate, since classes that take
+ * the same name share the one metric.
+ *
+ * Histograms bucket values by powers of two, so percentiles are upper
+ * bounds within a factor of two.  Snapshots of every metric can be taken
+ * as JSON or CSV, or written out periodically with startReporting.
+ */
+public class Metrics {
+
+    public static volatile boolean enabled = false;
+
+    static final Map<String, Metric> registry = new ConcurrentSkipListMap<>();
+    static ScheduledExecutorService reporter;
+
+    public static Counter counter(String name) {
+        Metric metric = registry.computeIfAbsent(name, Counter::new);
+        if (!(metric instanceof Counter)) throw new IllegalArgumentException(name + " is not a counter");
+        return (Counter) metric;
+    }
+
+    public static Histogram histogram(String name) {
+        Metric metric = registry.computeIfAbsent(name, Histogram::new);
+        if (!(metric instanceof Histogram)) throw new IllegalArgumentException(name + " is not a histogram");
+        return (Histogram) metric;
+    }
+
+    // the start time for Histogram.recordSince, or 0 when disabled
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static void reset() {
+        for (Metric metric : registry.values()) metric.reset();
+    }
+
+    public static abstract class Metric {
+        public final String name;
+
+        Metric(String name) {
+            this.name = name;
+        }
+
+        abstract void reset();
+
+        abstract String json();
+
+        abstract String csv();
+    }
+
+    public static class Counter extends Metric {
+        final LongAdder count = new LongAdder();
+
+        Counter(String name) {
+            super(name);
+        }
+
+        public void inc() {
+            if (enabled) count.increment();
+        }
+
+        public void add(long n) {
+            if (enabled) count.add(n);
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        void reset() {
+            count.reset();
+        }
+
+        String json() {
+            return String.format("{\"type\":\"counter\",\"count\":%d}", get());
+        }
+
+        String csv() {
+            return "counter," + get() + ",,,,,,";
+        }
+    }
+
+    public static class Histogram extends Metric {
+        // bucket 0 holds values up to 0, bucket i those in [2^(i-1), 2^i)
+        final LongAdder[] buckets = new LongAdder[65];
+        final LongAdder count = new LongAdder();
+        final LongAdder sum = new LongAdder();
+        final LongAccumulator max = new LongAccumulator(Long::max, Long.MIN_VALUE);
+
+        Histogram(String name) {
+            super(name);
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+
+        public void record(long value) {
+            if (!enabled) return;
+            buckets[value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value)].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        // records the nanoseconds since start, unless start came from a disabled Metrics.start()
+        public void recordSince(long start) {
+            if (enabled && start != 0) record(System.nanoTime() - start);
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public double mean() {
+            long n = count();
+            return n == 0 ? 0 : sum.sum() / (double) n;
+        }
+
+        public long max() {
+            return count() == 0 ? 0 : max.get();
+        }
+
+        // the upper bound of the bucket that holds the q quantile
+        public long percentile(double q) {
+            long n = count();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(q * n);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) return i == 0 ? 0 : Math.min(max(), i == 64 ? Long.MAX_VALUE : (1L << i) - 1);
+            }
+            return max();
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) bucket.reset();
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+
+        String json() {
+            return String.format("{\"type\":\"histogram\",\"count\":%d,\"sum\":%d,\"mean\":%.1f,\"p50\":%d,\"p90\":%d,\"p99\":%d,\"max\":%d}",
+                    count(), sum.sum(), mean(), percentile(0.5), percentile(0.9), percentile(0.99), max());
+        }
+
+        String csv() {
+            return String.format("histogram,%d,%d,%.1f,%d,%d,%d,%d",
+                    count(), sum.sum(), mean(), percentile(0.5), percentile(0.9), percentile(0.99), max());
+        }
+    }
+
+    /**
+     * All the metrics on one line: {"time":millis,"metrics":{name:{...},...}}
+     */
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"time\":").append(System.currentTimeMillis()).append(",\"metrics\":{");
+        String sep = "";
+        for (Metric metric : registry.values()) {
+            sb.append(sep).append('"').append(metric.name.replace("\"", "\\\"")).append("\":").append(metric.json());
+            sep = ",";
+        }
+        return sb.append("}}").toString();
+    }
+
+    public static final String csvHeader = "time,name,type,count,sum,mean,p50,p90,p99,max";
+
+    /**
+     * One row per metric, without the header; counters leave the histogram columns blank.
+     */
+    public static String toCsv() {
+        long time = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder();
+        for (Metric metric : registry.values()) {
+            sb.append(time).append(',').append(metric.name).append(',').append(metric.csv()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Enables the metrics and writes a snapshot to out every periodMillis,
+     * as JSON lines or CSV, until stopReporting.
+     */
+    public static synchronized void startReporting(PrintStream out, long periodMillis, boolean json) {
+        stopReporting();
+        enabled = true;
+        if (!json) out.println(csvHeader);
+        reporter = Executors.newSingleThreadScheduledExecutor(DaemonPool.factory("Metrics"));
+        reporter.scheduleAtFixedRate(() -> {
+            if (json) out.println(toJson());
+            else out.print(toCsv());
+            out.flush();
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static synchronized void stopReporting() {
+        if (reporter != null) reporter.shutdown();
+        reporter = null;
+    }
+}
@@ -159,6 +159,24 @@ public class StatSummary implements Comparable<StatSummary> {
         return this;
     }
 
+    // reduces the weight of the summary to floor(n * factor) samples,
+    // keeping the mean; min and max are left as they were, unless no
+    // samples are left, when the summary is emptied
+    public StatSummary decay(double factor) {
+        int m = (int) Math.floor(n * factor);
+        if (m <= 0) {
+            reset();
+            valid = false;
+        } else if (m < n) {
+            double w = n > 0 ? (double) m / n : 0;
+            n = m;
+            sum *= w;
+            sumsq *= w;
+            valid = false;
+        }
+        return this;
+    }
+
     // note: this method removes from mean and standard deviation
     // but cannot efficently adjudt min and max
     public void removeFromMean(double d) {
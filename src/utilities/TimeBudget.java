@@ -0,0 +1,119 @@
+package utilities;
+
+/**
+ * Deadline for anytime planning loops, measured on the monotonic clock.
+ *
+ * Call start() when the decision begins and next() before every iteration;
+ * next() returns false once there is probably not enough time left for
+ * another iteration.  The clock is only read every few iterations: a
+ * running estimate of the cost per iteration decides how many iterations
+ * can safely run before the next read (at most checkEvery), so the loop
+ * stops short of the deadline rather than just after it.
+ *
+ * At least minIterations are always allowed, so that a planner always has
+ * some result to return even when called with no time left.
+ */
+public class TimeBudget {
+
+    long budgetNanos;
+    long deadline;
+
+    public int checkEvery = 16;
+    public int minIterations = 1;
+    // stop when the remaining time is less than this many iteration costs
+    public double safetyFactor = 1.5;
+    // weight given to the most recent cost measurement
+    public double alpha = 0.2;
+
+    int nIterations;
+    int nextCheck;
+    int lastCheckIterations;
+    long lastCheckTime;
+    double nanosPerIteration;
+    boolean expired;
+
+    public TimeBudget(long millis) {
+        setMillis(millis);
+    }
+
+    public TimeBudget setMillis(long millis) {
+        budgetNanos = Math.max(0, millis) * 1000000;
+        return this;
+    }
+
+    public TimeBudget setCheckEvery(int checkEvery) {
+        this.checkEvery = Math.max(1, checkEvery);
+        return this;
+    }
+
+    /**
+     * Starts the clock; the per-iteration cost estimate is kept from the
+     * previous decision, since consecutive decisions usually cost the same.
+     */
+    public TimeBudget start() {
+        long now = System.nanoTime();
+        deadline = now + budgetNanos;
+        nIterations = 0;
+        nextCheck = 0;
+        lastCheckIterations = 0;
+        lastCheckTime = now;
+        expired = false;
+        return this;
+    }
+
+    public TimeBudget start(long millis) {
+        return setMillis(millis).start();
+    }
+
+    public boolean next() {
+        if (expired) return false;
+        if (nIterations < nextCheck) {
+            nIterations++;
+            return true;
+        }
+        long now = System.nanoTime();
+        int done = nIterations - lastCheckIterations;
+        if (done > 0) {
+            double cost = (double) (now - lastCheckTime) / done;
+            nanosPerIteration = nanosPerIteration == 0 ? cost :
+                    (1 - alpha) * nanosPerIteration + alpha * cost;
+        }
+        lastCheckTime = now;
+        lastCheckIterations = nIterations;
+
+        long remaining = deadline - now;
+        long affordable;
+        if (nanosPerIteration > 0) {
+            affordable = (long) (remaining / (nanosPerIteration * safetyFactor));
+        } else {
+            affordable = remaining > 0 ? 1 : 0;
+        }
+        if (affordable < 1 && nIterations >= minIterations) {
+            expired = true;
+            return false;
+        }
+        nextCheck = nIterations + (int) Math.max(1, Math.min(checkEvery, affordable));
+        nIterations++;
+        return true;
+    }
+
+    public boolean expired() {
+        return expired;
+    }
+
+    public int iterations() {
+        return nIterations;
+    }
+
+    public double millisPerIteration() {
+        return nanosPerIteration / 1e6;
+    }
+
+    public long remainingMillis() {
+        return (deadline - System.nanoTime()) / 1000000;
+    }
+
+    public String toString() {
+        return String.format("%d iterations, %.3f ms each", nIterations, millisPerIteration());
+    }
+}